@@ -0,0 +1,144 @@
+package com.consultation.benchmark;
+
+import com.consultation.controller.ConsultationController;
+import com.consultation.model.TimeRange;
+import com.consultation.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Measures booking throughput when many threads book the SAME counselor at once,
+ * i.e. the worst case for slot contention. Each run uses a fresh controller with
+ * one counselor, a large number of 15-minute slots and one student per slot.
+ * Each thread count is run twice: in memory only, and with the write-ahead journal enabled
+ * (every booking waits for its group-committed fsync), to show what durability costs.
+ *
+ * Run with: mvn -q -Pbench compile exec:java -Dexec.mainClass=com.consultation.benchmark.BookingContentionBenchmark
+ */
+public class BookingContentionBenchmark {
+
+    private static final int DAYS = 40;
+    private static final int SLOTS_PER_DAY = 32; // 08:00 - 16:00 in 15-minute slots
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream console = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        console.println("Booking contention benchmark: " + (DAYS * SLOTS_PER_DAY) + " bookings against one counselor per run");
+        console.println(String.format("%8s %14s %14s %12s", "threads", "in-memory/sec", "journaled/sec", "booked"));
+        for (int threads : THREAD_COUNTS) {
+            double bestInMemory = 0;
+            double bestJournaled = 0;
+            int booked = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                System.setOut(quiet); // The controller logs every step; keep that out of the report
+                System.setErr(quiet);
+                try {
+                    Result inMemory = runOnce(threads, false);
+                    Result journaled = runOnce(threads, true);
+                    bestInMemory = Math.max(bestInMemory, inMemory.bookingsPerSecond);
+                    bestJournaled = Math.max(bestJournaled, journaled.bookingsPerSecond);
+                    booked = journaled.booked;
+                } finally {
+                    System.setOut(console);
+                    System.setErr(console);
+                }
+            }
+            console.println(String.format("%8d %14.0f %14.0f %12d", threads, bestInMemory, bestJournaled, booked));
+        }
+    }
+
+    private static Result runOnce(int threads, boolean journaled) throws Exception {
+        Path journalDir = journaled ? Files.createTempDirectory("booking-bench") : null;
+        ConsultationController controller = journaled
+                ? new ConsultationController(journalDir)
+                : new ConsultationController();
+        try {
+            return runOnce(controller, threads);
+        } finally {
+            controller.close();
+            if (journalDir != null) {
+                deleteQuietly(journalDir);
+            }
+        }
+    }
+
+    // Deletes a temp journal directory and everything in it
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Temp files; nothing to do
+        }
+    }
+
+    private static Result runOnce(ConsultationController controller, int threads) throws Exception {
+        User counselor = controller.registerUser("bench.counselor", "pass", "COUNSELOR", "Bench Counselor", "bench@example.com", null);
+        LocalDate firstDay = LocalDate.now().plusDays(8); // After the default slots registerUser creates
+        for (int d = 0; d < DAYS; d++) {
+            List<TimeRange> ranges = new ArrayList<>();
+            for (int i = 0; i < SLOTS_PER_DAY; i++) {
+                LocalTime start = LocalTime.of(8, 0).plusMinutes(15L * i);
+                ranges.add(new TimeRange(start, start.plusMinutes(15)));
+            }
+            controller.addTimeSlots(counselor, firstDay.plusDays(d), ranges);
+        }
+        int bookings = DAYS * SLOTS_PER_DAY;
+        List<User> students = new ArrayList<>();
+        for (int i = 0; i < bookings; i++) {
+            students.add(controller.registerUser("bench.student" + i, "pass", "STUDENT", "Student " + i, "s" + i + "@example.com", null));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                int ok = 0;
+                for (int i = offset; i < students.size(); i += threads) {
+                    if (controller.createAppointment(students.get(i), counselor, "Academic Advising", 15) != null) {
+                        ok++;
+                    }
+                }
+                return ok;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        int booked = 0;
+        for (Future<Integer> f : futures) {
+            booked += f.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        return new Result(booked, booked / (elapsed / 1_000_000_000.0));
+    }
+
+    private static class Result {
+        final int booked;
+        final double bookingsPerSecond;
+
+        Result(int booked, double bookingsPerSecond) {
+            this.booked = booked;
+            this.bookingsPerSecond = bookingsPerSecond;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.consultation.benchmark;
+
+import com.consultation.model.Notification;
+import com.consultation.model.NotificationContent;
+import com.consultation.model.NotificationTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Compares notifications whose text is built when they are sent ("before") with notifications that
+ * keep a template and its arguments and render on first read ("after"): how fast they are created,
+ * and how much heap a large inbox of them keeps. The arguments are shared objects, as they are when
+ * they come from an appointment. A last row shows the cost of reading every "after" message once.
+ *
+ * Run with: mvn -q -Pbench compile exec:java -Dexec.mainClass=com.consultation.benchmark.NotificationContentBenchmark
+ */
+public class NotificationContentBenchmark {
+
+    private static final int NOTIFICATIONS = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, HH:mm");
+
+    private static volatile Object sink; // Keeps the JIT from dropping the work
+
+    public static void main(String[] args) {
+        LocalDateTime timestamp = LocalDateTime.now();
+        LocalDateTime time = timestamp.withSecond(0).withNano(0);
+        String staff = "Dr. Maria Santos";
+        String student = "Juan Dela Cruz";
+        String subject = "Thesis consultation";
+
+        System.out.println("Notification content benchmark: " + NOTIFICATIONS + " notifications (best of " + ROUNDS + ")");
+        System.out.println(String.format("%-28s %14s %16s", "", "created/sec", "bytes retained"));
+        double eagerRate = 0;
+        double lazyRate = 0;
+        double renderRate = 0;
+        long eagerBytes = Long.MAX_VALUE;
+        long lazyBytes = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = usedHeap();
+            long begin = System.nanoTime();
+            Notification[] eager = new Notification[NOTIFICATIONS];
+            for (int i = 0; i < NOTIFICATIONS; i++) {
+                eager[i] = new Notification(timestamp, "Appointment booked with " + staff + " for " + subject + " on " + time.format(TIME_FORMATTER) + ".");
+            }
+            eagerRate = Math.max(eagerRate, NOTIFICATIONS / seconds(begin));
+            eagerBytes = Math.min(eagerBytes, usedHeap() - before);
+            sink = eager;
+            eager = null;
+            sink = null;
+
+            before = usedHeap();
+            begin = System.nanoTime();
+            Notification[] lazy = new Notification[NOTIFICATIONS];
+            for (int i = 0; i < NOTIFICATIONS; i++) {
+                lazy[i] = new Notification(timestamp, NotificationContent.of(NotificationTemplate.BOOKED_FOR_STUDENT, staff, student, subject, time));
+            }
+            lazyRate = Math.max(lazyRate, NOTIFICATIONS / seconds(begin));
+            lazyBytes = Math.min(lazyBytes, usedHeap() - before);
+
+            begin = System.nanoTime();
+            int length = 0;
+            for (Notification n : lazy) {
+                length += n.getMessage().length();
+            }
+            renderRate = Math.max(renderRate, NOTIFICATIONS / seconds(begin));
+            sink = length;
+            lazy = null;
+            sink = null;
+        }
+        System.out.println(String.format("%-28s %14.0f %16d", "before (text when sent)", eagerRate, eagerBytes / NOTIFICATIONS));
+        System.out.println(String.format("%-28s %14.0f %16d", "after (template)", lazyRate, lazyBytes / NOTIFICATIONS));
+        System.out.println(String.format("%-28s %14.0f %16s", "after, first read (render)", renderRate, "-"));
+    }
+
+    // Heap in use after a full collection (best effort; System.gc() is only a hint)
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double seconds(long begin) {
+        return (System.nanoTime() - begin) / 1_000_000_000.0;
+    }
+}
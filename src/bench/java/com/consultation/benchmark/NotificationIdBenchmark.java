@@ -0,0 +1,138 @@
+package com.consultation.benchmark;
+
+import com.consultation.model.Notification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares notification creation throughput with the old random UUID string IDs ("before") and the
+ * current counter-based long IDs ("after"), on one thread and on many threads at once. A second table
+ * compares looking notifications up by ID (what marking one as read does) with either kind of key.
+ * "Before" is reproduced by {@link UuidNotification}, a copy of the old object shape.
+ *
+ * Run with: mvn -q -Pbench compile exec:java -Dexec.mainClass=com.consultation.benchmark.NotificationIdBenchmark
+ */
+public class NotificationIdBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+    private static final int CREATIONS_PER_RUN = 2_000_000;
+    private static final int INBOX_SIZE = 10_000;
+    private static final int LOOKUPS = 5_000_000;
+    private static final int ROUNDS = 5;
+
+    private static volatile Object sink; // Keeps the JIT from dropping the work
+
+    public static void main(String[] args) throws Exception {
+        LocalDateTime timestamp = LocalDateTime.now();
+        System.out.println("Notification ID benchmark: " + CREATIONS_PER_RUN + " notifications created per run (best of " + ROUNDS + ")");
+        System.out.println(String.format("%8s %16s %16s %9s", "threads", "before/sec", "after/sec", "speed-up"));
+        creationRate(4, false, timestamp); // Warm-up
+        creationRate(4, true, timestamp);
+        for (int threads : THREAD_COUNTS) {
+            double before = 0;
+            double after = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                before = Math.max(before, creationRate(threads, false, timestamp));
+                after = Math.max(after, creationRate(threads, true, timestamp));
+            }
+            System.out.println(String.format("%8d %16.0f %16.0f %8.1fx", threads, before, after, after / before));
+        }
+
+        System.out.println();
+        System.out.println("Lookup by ID in a " + INBOX_SIZE + "-notification index, " + LOOKUPS + " lookups");
+        System.out.println(String.format("%16s %16s %9s", "String keys/sec", "long keys/sec", "speed-up"));
+        double stringKeys = 0;
+        double longKeys = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            stringKeys = Math.max(stringKeys, stringLookupRate(timestamp));
+            longKeys = Math.max(longKeys, longLookupRate(timestamp));
+        }
+        System.out.println(String.format("%16.0f %16.0f %8.1fx", stringKeys, longKeys, longKeys / stringKeys));
+    }
+
+    // Notifications created per second, split evenly over the given threads
+    private static double creationRate(int threads, boolean longIds, LocalDateTime timestamp) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        int perThread = CREATIONS_PER_RUN / threads;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                Object last = null;
+                for (int i = 0; i < perThread; i++) {
+                    last = longIds ? new Notification(timestamp, "Message") : new UuidNotification(timestamp, "Message");
+                }
+                sink = last;
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        return perThread * (double) threads / (elapsed / 1_000_000_000.0);
+    }
+
+    private static double stringLookupRate(LocalDateTime timestamp) {
+        Map<String, UuidNotification> index = new HashMap<>();
+        String[] keys = new String[INBOX_SIZE];
+        for (int i = 0; i < INBOX_SIZE; i++) {
+            UuidNotification n = new UuidNotification(timestamp, "Message");
+            index.put(n.id, n);
+            keys[i] = new String(n.id); // Callers pass an equal string, not the same instance
+        }
+        long begin = System.nanoTime();
+        Object last = null;
+        for (int i = 0; i < LOOKUPS; i++) {
+            last = index.get(keys[(int) ((i * 7919L) % INBOX_SIZE)]);
+        }
+        long elapsed = System.nanoTime() - begin;
+        sink = last;
+        return LOOKUPS / (elapsed / 1_000_000_000.0);
+    }
+
+    private static double longLookupRate(LocalDateTime timestamp) {
+        Map<Long, Notification> index = new HashMap<>();
+        long[] keys = new long[INBOX_SIZE];
+        for (int i = 0; i < INBOX_SIZE; i++) {
+            Notification n = new Notification(timestamp, "Message");
+            index.put(n.getId(), n);
+            keys[i] = n.getId();
+        }
+        long begin = System.nanoTime();
+        Object last = null;
+        for (int i = 0; i < LOOKUPS; i++) {
+            last = index.get(keys[(int) ((i * 7919L) % INBOX_SIZE)]);
+        }
+        long elapsed = System.nanoTime() - begin;
+        sink = last;
+        return LOOKUPS / (elapsed / 1_000_000_000.0);
+    }
+
+    /** The old notification shape: a random UUID string ID per instance. */
+    private static final class UuidNotification {
+        final String id;
+        final LocalDateTime timestamp;
+        final String message;
+        boolean isRead;
+
+        UuidNotification(LocalDateTime timestamp, String message) {
+            this.id = UUID.randomUUID().toString();
+            this.timestamp = timestamp;
+            this.message = message;
+        }
+    }
+}
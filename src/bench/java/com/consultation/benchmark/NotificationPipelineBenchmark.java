@@ -0,0 +1,159 @@
+package com.consultation.benchmark;
+
+import com.consultation.controller.ConsultationController;
+import com.consultation.controller.ConsultationStore;
+import com.consultation.controller.InMemoryStore;
+import com.consultation.controller.JournalStore;
+import com.consultation.model.Appointment;
+import com.consultation.model.TimeRange;
+import com.consultation.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures how much latency asynchronous notification delivery takes off {@code createAppointment}
+ * and {@code setPriority}. Every operation is timed twice: returning as soon as its notifications
+ * are queued (how the controller works now), and followed by {@code flushNotifications()}, i.e.
+ * returning only once they are delivered, as when delivery ran inline.
+ * Each priority change moves all of a counselor's appointments, so it sends one notification per appointment.
+ *
+ * Run with: mvn -q -Pbench compile exec:java -Dexec.mainClass=com.consultation.benchmark.NotificationPipelineBenchmark
+ */
+public class NotificationPipelineBenchmark {
+
+    private static final String[] BACKENDS = {"in-memory", "journal"};
+    private static final int COUNSELORS = 100;
+    private static final int SLOTS_PER_DAY = 30; // Appointments (and notifications) per priority change
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream console = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        console.println("Notification pipeline benchmark: " + (COUNSELORS * SLOTS_PER_DAY) + " bookings and "
+                + COUNSELORS + " priority changes (" + SLOTS_PER_DAY + " notifications each) per run, latencies in us");
+        console.println(String.format("%10s %10s %10s %10s %12s %12s", "backend", "returns", "book p50", "book p99", "priority p50", "priority p99"));
+        System.setOut(quiet); // The controller logs every step; keep that out of the report
+        System.setErr(quiet);
+        try {
+            for (String backend : BACKENDS) { // Warm-up
+                run(backend, false);
+                run(backend, true);
+            }
+            for (String backend : BACKENDS) {
+                for (boolean flushed : new boolean[] {false, true}) {
+                    Latencies best = null;
+                    for (int round = 0; round < ROUNDS; round++) {
+                        Latencies latencies = run(backend, flushed);
+                        if (best == null || latencies.bookP50() < best.bookP50()) {
+                            best = latencies;
+                        }
+                    }
+                    console.println(String.format("%10s %10s %10d %10d %12d %12d", backend, flushed ? "delivered" : "queued",
+                            best.bookP50(), best.bookP99(), best.priorityP50(), best.priorityP99()));
+                }
+            }
+        } finally {
+            System.setOut(console);
+            System.setErr(console);
+        }
+    }
+
+    private static Latencies run(String backend, boolean flushed) throws Exception {
+        Path dir = Files.createTempDirectory("notification-bench");
+        ConsultationStore store = "journal".equals(backend) ? new JournalStore(dir) : new InMemoryStore();
+        ConsultationController controller = new ConsultationController(store);
+        try {
+            LocalDate day = LocalDate.now().plusDays(8); // After the default slots registerUser creates
+            List<User> counselors = new ArrayList<>();
+            for (int c = 0; c < COUNSELORS; c++) {
+                User counselor = controller.registerUser("bench.counselor" + c, "pass", "COUNSELOR", "Counselor " + c, "c" + c + "@example.com", null);
+                List<TimeRange> ranges = new ArrayList<>();
+                for (int i = 0; i < SLOTS_PER_DAY; i++) {
+                    LocalTime start = LocalTime.of(8, 0).plusMinutes(15L * i);
+                    ranges.add(new TimeRange(start, start.plusMinutes(15)));
+                }
+                controller.addTimeSlots(counselor, day, ranges);
+                counselors.add(counselor);
+            }
+            List<User> students = new ArrayList<>();
+            for (int i = 0; i < SLOTS_PER_DAY; i++) {
+                students.add(controller.registerUser("bench.student" + i, "pass", "STUDENT", "Student " + i, "s" + i + "@example.com", null));
+            }
+            controller.flushNotifications();
+
+            // Each student books every counselor once; the last booking of each counselor is prioritized below
+            long[] book = new long[COUNSELORS * SLOTS_PER_DAY];
+            List<Appointment> lastBooked = new ArrayList<>();
+            int n = 0;
+            for (User counselor : counselors) {
+                Appointment last = null;
+                for (User student : students) {
+                    long begin = System.nanoTime();
+                    last = controller.createAppointment(student, counselor, "Academic Advising", 15);
+                    if (flushed) {
+                        controller.flushNotifications();
+                    }
+                    book[n++] = (System.nanoTime() - begin) / 1_000;
+                }
+                lastBooked.add(last);
+            }
+            controller.flushNotifications();
+
+            long[] priority = new long[lastBooked.size()];
+            for (int i = 0; i < lastBooked.size(); i++) {
+                long begin = System.nanoTime();
+                controller.setPriority(lastBooked.get(i), true); // Moves every earlier appointment of that counselor
+                if (flushed) {
+                    controller.flushNotifications();
+                }
+                priority[i] = (System.nanoTime() - begin) / 1_000;
+            }
+            return new Latencies(book, priority);
+        } finally {
+            controller.close();
+            deleteQuietly(dir);
+        }
+    }
+
+    // Deletes a temp journal directory and everything in it
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Temp files; nothing to do
+        }
+    }
+
+    private static class Latencies {
+        final long[] book;
+        final long[] priority;
+
+        Latencies(long[] book, long[] priority) {
+            this.book = book;
+            this.priority = priority;
+            Arrays.sort(book);
+            Arrays.sort(priority);
+        }
+
+        long bookP50() { return percentile(book, 0.50); }
+        long bookP99() { return percentile(book, 0.99); }
+        long priorityP50() { return percentile(priority, 0.50); }
+        long priorityP99() { return percentile(priority, 0.99); }
+
+        private static long percentile(long[] sorted, double fraction) {
+            return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.consultation.benchmark;
+
+import com.consultation.controller.ConsultationController;
+import com.consultation.controller.RetentionPolicy;
+import com.consultation.model.Appointment;
+import com.consultation.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Simulates a long-running term: students keep booking and cancelling appointments, and every
+ * booking or cancellation sends two notifications. After each period the heap in use is measured,
+ * once with every notification kept in memory ("before") and once with a retention policy that moves
+ * all but each user's newest {@link #KEEP_PER_USER} notifications to the archive ("after").
+ *
+ * Run with: mvn -q -Pbench compile exec:java -Dexec.mainClass=com.consultation.benchmark.NotificationRetentionBenchmark
+ */
+public class NotificationRetentionBenchmark {
+
+    private static final int STUDENTS = 40;
+    private static final int COUNSELORS = 40;
+    private static final int PERIODS = 8;
+    private static final int KEEP_PER_USER = 100;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream console = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        console.println("Notification retention benchmark: " + (STUDENTS * COUNSELORS * 4) + " notifications per period, "
+                + (STUDENTS + COUNSELORS) + " users, heap in use after each period (MB)");
+        console.println(String.format("%8s %14s %12s %12s %14s", "period", "notifications", "before", "after", "archive (KB)"));
+        System.setOut(quiet); // The controller logs every step; keep that out of the report
+        System.setErr(quiet);
+        try {
+            long[][] before = run(false);
+            long[][] after = run(true);
+            for (int p = 0; p < PERIODS; p++) {
+                console.println(String.format("%8d %14d %12.1f %12.1f %14d", p + 1, (long) (p + 1) * STUDENTS * COUNSELORS * 4,
+                        before[p][0] / 1048576.0, after[p][0] / 1048576.0, after[p][1] / 1024));
+            }
+        } finally {
+            System.setOut(console);
+            System.setErr(console);
+        }
+    }
+
+    // Per period: {heap bytes in use, archive bytes}
+    private static long[][] run(boolean retention) throws Exception {
+        Path dir = Files.createTempDirectory("retention-bench");
+        ConsultationController controller = new ConsultationController();
+        try {
+            Path archive = dir.resolve("notification-archive.dat");
+            if (retention) {
+                controller.enableNotificationRetention(new RetentionPolicy(KEEP_PER_USER, null, null), archive);
+            }
+            List<User> students = new ArrayList<>();
+            List<User> counselors = new ArrayList<>();
+            for (int i = 0; i < COUNSELORS; i++) {
+                counselors.add(controller.registerUser("bench.counselor" + i, "pass", "COUNSELOR", "Counselor " + i, "c" + i + "@example.com", null));
+            }
+            for (int i = 0; i < STUDENTS; i++) {
+                students.add(controller.registerUser("bench.student" + i, "pass", "STUDENT", "Student " + i, "s" + i + "@example.com", null));
+            }
+
+            long[][] measured = new long[PERIODS][];
+            for (int p = 0; p < PERIODS; p++) {
+                for (User student : students) {
+                    for (User counselor : counselors) {
+                        Appointment appointment = controller.createAppointment(student, counselor, "Academic Advising", 15);
+                        if (appointment != null) {
+                            controller.cancelAppointment(appointment);
+                        }
+                    }
+                    controller.markAllNotificationsAsRead(student.getUsername());
+                }
+                controller.flushNotifications();
+                controller.enforceNotificationRetention(); // What the background task does every few minutes
+                measured[p] = new long[] {usedHeap(), retention ? Files.size(archive) : 0};
+            }
+            return measured;
+        } finally {
+            controller.close();
+            deleteQuietly(dir);
+        }
+    }
+
+    // Heap in use after a full collection (best effort; System.gc() is only a hint)
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Deletes a temp directory and everything in it
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Temp files; nothing to do
+        }
+    }
+}
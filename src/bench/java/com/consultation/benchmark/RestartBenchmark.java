@@ -0,0 +1,176 @@
+package com.consultation.benchmark;
+
+import com.consultation.controller.ConsultationController;
+import com.consultation.model.Appointment;
+import com.consultation.model.TimeRange;
+import com.consultation.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long a persistent controller takes to become ready after a restart, as the journaled
+ * history grows. Each history is a series of book-then-cancel cycles (the kind of churn a term produces)
+ * followed by a few hundred cycles that are always left in the log tail.
+ * Startup is timed twice per history: replaying the whole log, and loading a snapshot plus the tail.
+ * Because a snapshot is mapped and turned into objects lazily, the "all loaded" columns also time
+ * reading every user's appointments and notifications right after startup.
+ *
+ * Run with: mvn -q -Pbench compile exec:java -Dexec.mainClass=com.consultation.benchmark.RestartBenchmark
+ */
+public class RestartBenchmark {
+
+    private static final int[] HISTORY_CYCLES = {1_000, 4_000, 16_000};
+    private static final int TAIL_CYCLES = 500;
+    private static final int WRITER_THREADS = 8; // Concurrent writers share fsyncs, so histories build faster
+    private static final int STUDENTS = 64;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream console = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        console.println("Restart benchmark: time until the controller is ready, full log replay vs. snapshot + tail");
+        console.println(String.format("%8s %10s %10s %10s %10s %10s %10s %10s", "cycles",
+                "log rows", "ready ms", "loaded ms", "snap rows", "ready ms", "loaded ms", "speed-up"));
+        System.setOut(quiet); // The controller logs every step; keep that out of the report
+        System.setErr(quiet);
+        try {
+            run(HISTORY_CYCLES[0], null); // Warm-up
+            for (int cycles : HISTORY_CYCLES) {
+                run(cycles, console);
+            }
+        } finally {
+            System.setOut(console);
+            System.setErr(console);
+        }
+    }
+
+    private static void run(int cycles, PrintStream report) throws Exception {
+        Startup full = restartAfter(cycles, false);
+        Startup snapshot = restartAfter(cycles, true);
+        if (report != null) {
+            report.println(String.format("%8d %10d %10.1f %10.1f %10d %10.1f %10.1f %9.1fx", cycles,
+                    full.records, full.readyMillis, full.loadedMillis, snapshot.records, snapshot.readyMillis, snapshot.loadedMillis,
+                    full.readyMillis / snapshot.readyMillis));
+        }
+    }
+
+    // Builds the same kind of history in a fresh directory (snapshotted just before the tail, or never)
+    // and times restarting from it
+    private static Startup restartAfter(int cycles, boolean snapshot) throws Exception {
+        Path dir = Files.createTempDirectory("restart-bench");
+        try {
+            ConsultationController controller = new ConsultationController(dir);
+            buildHistory(controller, cycles);
+            if (snapshot) {
+                controller.compactJournal();
+            }
+            churn(controller, TAIL_CYCLES); // Work done since the last snapshot
+            controller.close();
+            return timeStartup(dir);
+        } finally {
+            deleteQuietly(dir);
+        }
+    }
+
+    // Best of a few restarts; the controller is closed again right away
+    private static Startup timeStartup(Path dir) throws IOException {
+        Startup best = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long begin = System.nanoTime();
+            ConsultationController controller = new ConsultationController(dir);
+            double readyMillis = (System.nanoTime() - begin) / 1_000_000.0;
+            for (User user : controller.getAllUsers()) {
+                controller.getUserAppointments(user);
+                controller.getUserNotifications(user.getUsername());
+            }
+            double loadedMillis = (System.nanoTime() - begin) / 1_000_000.0;
+            int records = controller.getRestoredRecordCount();
+            controller.close();
+            if (best == null || readyMillis < best.readyMillis) {
+                best = new Startup(records, readyMillis, loadedMillis);
+            }
+        }
+        return best;
+    }
+
+    private static void buildHistory(ConsultationController controller, int cycles) throws Exception {
+        User counselor = controller.registerUser("bench.counselor", "pass", "COUNSELOR", "Bench Counselor", "bench@example.com", null);
+        LocalDate firstDay = LocalDate.now().plusDays(8); // After the default slots registerUser creates
+        for (int d = 0; d < 5; d++) {
+            List<TimeRange> ranges = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                LocalTime start = LocalTime.of(8, 0).plusMinutes(15L * i);
+                ranges.add(new TimeRange(start, start.plusMinutes(15)));
+            }
+            controller.addTimeSlots(counselor, firstDay.plusDays(d), ranges);
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            controller.registerUser("bench.student" + i, "pass", "STUDENT", "Student " + i, "s" + i + "@example.com", null);
+        }
+        churn(controller, cycles);
+    }
+
+    // Each cycle books an appointment and cancels it again (booking, cancellation and their notifications)
+    private static void churn(ConsultationController controller, int cycles) throws Exception {
+        User counselor = findUser(controller, "bench.counselor");
+        ExecutorService pool = Executors.newFixedThreadPool(WRITER_THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < WRITER_THREADS; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                for (int i = offset; i < cycles; i += WRITER_THREADS) {
+                    User student = findUser(controller, "bench.student" + (i % STUDENTS));
+                    synchronized (student) { // A student can only hold one appointment per counselor
+                        Appointment appointment = controller.createAppointment(student, counselor, "Academic Advising", 15);
+                        if (appointment != null) {
+                            controller.cancelAppointment(appointment);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+    }
+
+    private static User findUser(ConsultationController controller, String username) {
+        return controller.getAllUsers().stream().filter(u -> u.getUsername().equals(username)).findFirst().orElseThrow();
+    }
+
+    // Deletes a temp journal directory and everything in it
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Temp files; nothing to do
+        }
+    }
+
+    private static class Startup {
+        final int records;
+        final double readyMillis;
+        final double loadedMillis;
+
+        Startup(int records, double readyMillis, double loadedMillis) {
+            this.records = records;
+            this.readyMillis = readyMillis;
+            this.loadedMillis = loadedMillis;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.consultation.benchmark;
+
+import com.consultation.controller.ConsultationController;
+import com.consultation.controller.ConsultationStore;
+import com.consultation.controller.InMemoryStore;
+import com.consultation.controller.JournalStore;
+import com.consultation.model.Appointment;
+import com.consultation.model.TimeRange;
+import com.consultation.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Compares the storage backends ({@link InMemoryStore} and {@link JournalStore}) on the two things
+ * users notice: how many bookings per second the controller takes, and how long a student's screen
+ * refresh (appointments, notifications and queue position) takes while other students are booking.
+ * Bookings are spread over several counselors, as in normal use.
+ *
+ * Run with: mvn -q -Pbench compile exec:java -Dexec.mainClass=com.consultation.benchmark.StorageBackendBenchmark
+ */
+public class StorageBackendBenchmark {
+
+    private static final String[] BACKENDS = {"in-memory", "journal"};
+    private static final int COUNSELORS = 8;
+    private static final int DAYS = 10;
+    private static final int SLOTS_PER_DAY = 32; // 08:00 - 16:00 in 15-minute slots
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+    private static final int BACKGROUND_BOOKERS = 8; // Load while refresh latency is measured
+    private static final int REFRESHES = 20_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream console = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        console.println("Storage backend benchmark: " + (COUNSELORS * DAYS * SLOTS_PER_DAY) + " bookings over " + COUNSELORS + " counselors per run");
+        System.setOut(quiet); // The controller logs every step; keep that out of the report
+        System.setErr(quiet);
+        try {
+            for (String backend : BACKENDS) { // Warm-up
+                bookingThroughput(backend, 4);
+            }
+            console.println(String.format("%10s %8s %14s", "backend", "threads", "bookings/sec"));
+            for (String backend : BACKENDS) {
+                for (int threads : THREAD_COUNTS) {
+                    double best = 0;
+                    for (int round = 0; round < ROUNDS; round++) {
+                        best = Math.max(best, bookingThroughput(backend, threads));
+                    }
+                    console.println(String.format("%10s %8d %14.0f", backend, threads, best));
+                }
+            }
+
+            console.println();
+            console.println(String.format("%10s %12s %12s %12s", "backend", "refresh p50", "refresh p99", "refresh max"));
+            for (String backend : BACKENDS) {
+                long[] micros = refreshLatency(backend);
+                console.println(String.format("%10s %10dus %10dus %10dus", backend,
+                        percentile(micros, 0.50), percentile(micros, 0.99), micros[micros.length - 1]));
+            }
+        } finally {
+            System.setOut(console);
+            System.setErr(console);
+        }
+    }
+
+    // --- Measurements ---
+
+    private static double bookingThroughput(String backend, int threads) throws Exception {
+        Path dir = Files.createTempDirectory("backend-bench");
+        ConsultationController controller = new ConsultationController(createStore(backend, dir));
+        try {
+            Setup setup = seed(controller);
+            long begin = System.nanoTime();
+            int booked = bookAll(controller, setup, threads);
+            return booked / ((System.nanoTime() - begin) / 1_000_000_000.0);
+        } finally {
+            controller.close();
+            deleteQuietly(dir);
+        }
+    }
+
+    // Sorted refresh latencies (microseconds) of one student, taken while background threads keep booking
+    private static long[] refreshLatency(String backend) throws Exception {
+        Path dir = Files.createTempDirectory("backend-bench");
+        ConsultationController controller = new ConsultationController(createStore(backend, dir));
+        try {
+            Setup setup = seed(controller);
+            User viewer = setup.students.get(0);
+            Appointment viewed = controller.createAppointment(viewer, setup.counselors.get(0), "Academic Advising", 15);
+            AtomicBoolean stop = new AtomicBoolean();
+            ExecutorService load = Executors.newSingleThreadExecutor();
+            Future<?> bookers = load.submit(() -> {
+                churn(controller, setup, stop);
+                return null;
+            });
+
+            long[] micros = new long[REFRESHES];
+            for (int i = 0; i < REFRESHES; i++) {
+                long begin = System.nanoTime();
+                controller.getUserAppointments(viewer);
+                controller.getUserNotifications(viewer.getUsername());
+                controller.getQueuePosition(viewed);
+                micros[i] = (System.nanoTime() - begin) / 1_000;
+            }
+            stop.set(true);
+            bookers.get();
+            load.shutdown();
+            Arrays.sort(micros);
+            return micros;
+        } finally {
+            controller.close();
+            deleteQuietly(dir);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    // --- Workload ---
+
+    private static ConsultationStore createStore(String backend, Path dir) {
+        return "journal".equals(backend) ? new JournalStore(dir) : new InMemoryStore();
+    }
+
+    private static Setup seed(ConsultationController controller) {
+        Setup setup = new Setup();
+        LocalDate firstDay = LocalDate.now().plusDays(8); // After the default slots registerUser creates
+        for (int c = 0; c < COUNSELORS; c++) {
+            User counselor = controller.registerUser("bench.counselor" + c, "pass", "COUNSELOR", "Counselor " + c, "c" + c + "@example.com", null);
+            for (int d = 0; d < DAYS; d++) {
+                List<TimeRange> ranges = new ArrayList<>();
+                for (int i = 0; i < SLOTS_PER_DAY; i++) {
+                    LocalTime start = LocalTime.of(8, 0).plusMinutes(15L * i);
+                    ranges.add(new TimeRange(start, start.plusMinutes(15)));
+                }
+                controller.addTimeSlots(counselor, firstDay.plusDays(d), ranges);
+            }
+            setup.counselors.add(counselor);
+        }
+        for (int i = 0; i < DAYS * SLOTS_PER_DAY; i++) { // One booking per counselor per student
+            setup.students.add(controller.registerUser("bench.student" + i, "pass", "STUDENT", "Student " + i, "s" + i + "@example.com", null));
+        }
+        return setup;
+    }
+
+    // Books every student with every counselor, split over the given threads
+    private static int bookAll(ConsultationController controller, Setup setup, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        int total = setup.counselors.size() * setup.students.size();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                int ok = 0;
+                for (int i = offset; i < total; i += threads) {
+                    User counselor = setup.counselors.get(i % setup.counselors.size());
+                    User student = setup.students.get(i / setup.counselors.size());
+                    if (controller.createAppointment(student, counselor, "Academic Advising", 15) != null) {
+                        ok++;
+                    }
+                }
+                return ok;
+            }));
+        }
+        start.countDown();
+        int booked = 0;
+        for (Future<Integer> f : futures) {
+            booked += f.get();
+        }
+        pool.shutdown();
+        return booked;
+    }
+
+    // Background load: each booker keeps booking and cancelling again (other students, same counselors) until stopped
+    private static void churn(ConsultationController controller, Setup setup, AtomicBoolean stop) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BACKGROUND_BOOKERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < BACKGROUND_BOOKERS; t++) {
+            User student = setup.students.get(1 + t); // Student 0 is the one refreshing
+            futures.add(pool.submit(() -> {
+                for (int i = 0; !stop.get(); i++) {
+                    User counselor = setup.counselors.get(i % setup.counselors.size());
+                    Appointment appointment = controller.createAppointment(student, counselor, "Academic Advising", 15);
+                    if (appointment != null) {
+                        controller.cancelAppointment(appointment);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+    }
+
+    // Deletes a temp journal directory and everything in it
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Temp files; nothing to do
+        }
+    }
+
+    private static class Setup {
+        final List<User> counselors = new ArrayList<>();
+        final List<User> students = new ArrayList<>();
+    }
+}
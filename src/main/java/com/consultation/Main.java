@@ -1,17 +1,52 @@
 package com.consultation;
 
 import com.consultation.controller.ConsultationController;
+import com.consultation.controller.RetentionPolicy;
 import com.consultation.view.ConsultationGUI;
 import com.consultation.util.DataInitializer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.swing.SwingUtilities;
 
 public class Main {
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
-            ConsultationController controller = new ConsultationController();
-            DataInitializer.initializeData(controller);
+            ConsultationController controller = createController();
+            if (!controller.hasRestoredState()) {
+                DataInitializer.initializeData(controller); // First run: seed sample data (it is journaled like any other change)
+            } else {
+                controller.initializeAllTimeSlots(); // Top up the rolling week of default slots for the days since the last run
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(controller::close, "journal-close"));
             ConsultationGUI gui = new ConsultationGUI(controller);
             gui.setVisible(true);
         });
     }
-} 
\ No newline at end of file
+
+    /**
+     * Opens the persistent controller (journal in ./data, or -Dconsultation.dataDir=...),
+     * falling back to an in-memory controller if the journal cannot be opened.
+     * Old notifications are archived to the data directory according to the retention properties
+     * (-Dconsultation.notifications.maxPerUser, .maxAgeDays and .readDays).
+     */
+    private static ConsultationController createController() {
+        Path journalDir = Paths.get(System.getProperty("consultation.dataDir", "data"));
+        try {
+            ConsultationController controller = new ConsultationController(journalDir);
+            RetentionPolicy policy = RetentionPolicy.of(
+                    Integer.getInteger("consultation.notifications.maxPerUser", 500),
+                    Integer.getInteger("consultation.notifications.maxAgeDays", 365),
+                    Integer.getInteger("consultation.notifications.readDays", 30));
+            try {
+                controller.enableNotificationRetention(policy, journalDir.resolve("notification-archive.dat"));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not open the notification archive (" + e.getMessage() + "). Old notifications will be kept in memory.");
+            }
+            return controller;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not open journal in " + journalDir + " (" + e.getMessage() + "). Running in memory only; changes will not be saved.");
+            return new ConsultationController();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.consultation.controller;
+
+import com.consultation.model.Appointment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/** Changes to appointments. Part of the {@link ConsultationStore} SPI. */
+public interface AppointmentRepository {
+    /** An appointment was booked into the slot starting at {@code slotDate}/{@code slotStart}. */
+    void appointmentBooked(Appointment appointment, LocalDate slotDate, LocalTime slotStart);
+
+    void appointmentCancelled(int appointmentId);
+
+    /** @param leftQueue Whether this change also took the appointment out of its staff queue. */
+    void appointmentStatusChanged(int appointmentId, String status, boolean leftQueue);
+}
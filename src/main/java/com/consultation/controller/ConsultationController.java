@@ -1,48 +1,227 @@
 package com.consultation.controller;
 
+import com.consultation.event.DomainEvent;
+import com.consultation.event.EventBus;
 import com.consultation.model.*; // Import all model classes including TimeSlot, User, etc.
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter; // Import DateTimeFormatter
 import java.time.temporal.TemporalAdjusters;
 import java.util.*; // Import common utilities like Map, List, Set, Collections, Comparator
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors; // Import Collectors
 
 /**
  * Controller class for the Consultation Queue System.
  * Manages users, appointments, schedules, queues, and notifications.
  * Acts as the intermediary between the View (GUI) and the Model.
+ * <p>
+ * Safe for concurrent use: all maps are concurrent, and every operation that touches a staff
+ * member's schedule, queue or appointments runs under that staff member's own lock, so work
+ * against different professors/counselors proceeds in parallel.
+ * <p>
+ * Storage is pluggable (see {@link ConsultationStore}): the controller always works on its own
+ * in-memory objects and reports every state change to its store. The default {@link InMemoryStore}
+ * keeps nothing; a {@link JournalStore} appends each change to a write-ahead log and restores it on
+ * the next start. Public methods that change state return only after the store has made them durable.
+ * <p>
+ * Notifications are delivered asynchronously by a {@link NotificationPipeline}: a state change only
+ * queues its messages, and they reach the users' inboxes (and the store) shortly afterwards. Call
+ * {@link #flushNotifications()} where a caller must see them right away, or
+ * {@link #subscribeNotifications(String, NotificationListener)} to be told as they arrive.
+ * <p>
+ * Appointment and schedule changes are published as {@link DomainEvent}s on the controller's
+ * {@link EventBus} (see {@link #getEventBus()}) once the change is complete and durable. The
+ * appointment notifications themselves are sent by a synchronous subscriber of that bus.
+ * <p>
+ * With {@link #enableNotificationRetention(RetentionPolicy, Path)}, a background task moves
+ * notifications that fall outside the policy from the inboxes to a compressed archive file, so
+ * memory use doesn't grow with the age of the system; {@link #getArchivedNotifications(String)}
+ * reads them back.
  */
 public class ConsultationController {
 
     // Data Storage
     private final Map<String, User> users;
     private final Map<String, QueueManager> queues; // Maps Professor/Counselor username to their queue
-    private final Map<String, Map<LocalDate, List<TimeSlot>>> professorSchedules; // username -> date -> slots
+    private final Map<String, StaffSchedule> professorSchedules; // username -> date-ordered schedule
     private final Map<Integer, Appointment> appointments; // appointmentId -> Appointment
-    private final Map<String, List<Notification>> userNotifications; // username -> List of Notifications
+    private final Map<String, NotificationInbox> userNotifications; // username -> that user's inbox
+
+    // Secondary indexes: username -> that user's appointments, ordered by appointment time (then ID). Entries are
+    // added, removed and moved one at a time, and lock-free readers never miss one (see AppointmentIndex).
+    private final Map<String, AppointmentIndex> studentAppointments;
+    private final Map<String, AppointmentIndex> staffAppointments;
+    // Staff username -> that staff member's PENDING appointments, in the same order (a priority shift group is a head of it)
+    private final Map<String, AppointmentIndex> pendingAppointments;
+
+    // One lock per staff username, guarding that staff member's schedule, queue and appointments
+    private final Map<String, ReentrantLock> staffLocks;
 
     // State Variables
-    private int nextAppointmentId;
+    private final AtomicInteger nextAppointmentId;
+
+    // Delivers notifications off the request path (see sendNotification())
+    private final NotificationPipeline notificationPipeline;
+
+    // Domain events; published after the staff lock is released (see emit())
+    private final EventBus eventBus = new EventBus();
+    private final ThreadLocal<int[]> staffLockDepth = ThreadLocal.withInitial(() -> new int[1]); // Staff locks held by this thread
+    private final ThreadLocal<List<DomainEvent>> pendingEvents = ThreadLocal.withInitial(ArrayList::new); // Emitted under a staff lock
+
+    // username -> listeners told about that user's new notifications (see subscribeNotifications())
+    private final Map<String, List<NotificationSubscriber>> notificationSubscribers = new ConcurrentHashMap<>();
+    private ExecutorService notificationDispatcher; // guarded by this; started by the first default subscription
+
+    // Notification retention (see enableNotificationRetention()); set once, null until enabled
+    private static final long RETENTION_CHECK_MINUTES = 10;
+    private static final int ARCHIVE_BATCH = 10_000; // Notifications per archive frame
+    private volatile RetentionPolicy retentionPolicy;
+    private volatile NotificationArchive notificationArchive;
+    private ScheduledExecutorService retentionTask;
+
+    // Backend that every state change is reported to (an InMemoryStore while the store is loading)
+    private ConsultationStore store;
+
+    // Snapshot the state was restored from (null if none). Staff members whose slots and appointments
+    // are still only in the mapped snapshot are listed in unloadedStaff; see ensureStaffLoaded().
+    // Inboxes are likewise created from it on first use (see inboxOf()).
+    private volatile SnapshotImage snapshotImage;
+    private final Set<String> unloadedStaff;
 
-    // Formatter for user-friendly times in notifications
-    private static final DateTimeFormatter NOTIFICATION_TIME_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, HH:mm");
+    // Formatter for times in availability notifications (appointment messages are formatted by NotificationTemplate)
     private static final DateTimeFormatter SHORT_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
+    // Ordering for merged per-user index reads (ID breaks ties between appointments at the same time)
+    private static final Comparator<Appointment> APPOINTMENT_TIME_ORDER =
+            Comparator.comparing(Appointment::getAppointmentTime).thenComparingInt(Appointment::getId);
+
     /**
-     * Constructor initializes all data structures.
+     * Constructor initializes all data structures. State is kept in memory only.
      */
     public ConsultationController() {
-        users = new HashMap<>();
-        queues = new HashMap<>();
-        professorSchedules = new HashMap<>();
-        appointments = new HashMap<>();
-        userNotifications = new HashMap<>();
-        nextAppointmentId = 1;
+        users = new ConcurrentHashMap<>();
+        queues = new ConcurrentHashMap<>();
+        professorSchedules = new ConcurrentHashMap<>();
+        appointments = new ConcurrentHashMap<>();
+        userNotifications = new ConcurrentHashMap<>();
+        studentAppointments = new ConcurrentHashMap<>();
+        staffAppointments = new ConcurrentHashMap<>();
+        pendingAppointments = new ConcurrentHashMap<>();
+        staffLocks = new ConcurrentHashMap<>();
+        unloadedStaff = ConcurrentHashMap.newKeySet();
+        nextAppointmentId = new AtomicInteger(1);
+        store = new InMemoryStore();
+        notificationPipeline = new NotificationPipeline(this::deliverNotifications);
+        eventBus.subscribe(DomainEvent.AppointmentEvent.class, this::sendAppointmentNotifications);
         // Time slots are typically initialized via DataInitializer after users are registered
     }
 
+    /**
+     * Creates a controller backed by the given store. Whatever the store holds is restored before this
+     * constructor returns (see {@link #hasRestoredState()}); otherwise the caller should seed initial data as usual.
+     * The controller owns the store from now on and closes it in {@link #close()}.
+     *
+     * @param store The storage backend. Must not have been loaded yet.
+     * @throws IOException if the stored state cannot be read.
+     */
+    public ConsultationController(ConsultationStore store) throws IOException {
+        this();
+        store.load(this); // Restores into this controller while it still reports to the in-memory store
+        this.store = store;
+        System.out.println("Controller: Restored " + store.getRestoredRecordCount() + " record(s) from " + store.getClass().getSimpleName());
+    }
+
+    /**
+     * Creates a controller that persists its state to a write-ahead journal (log segments plus
+     * periodic snapshots) in the given directory. Same as {@code new ConsultationController(new JournalStore(journalDir))}.
+     *
+     * @param journalDir The journal directory. Created if it doesn't exist.
+     * @throws IOException if the journal cannot be opened or read.
+     */
+    public ConsultationController(Path journalDir) throws IOException {
+        this(new JournalStore(journalDir));
+    }
+
+    /**
+     * Checks if any state was restored from the store at startup.
+     *
+     * @return true if the store contained records.
+     */
+    public boolean hasRestoredState() {
+        return store.getRestoredRecordCount() > 0;
+    }
+
+    /**
+     * Gets the number of records (for a journal: snapshot rows and log records) restored from the store at startup.
+     *
+     * @return The record count, or 0 for an in-memory controller.
+     */
+    public int getRestoredRecordCount() {
+        return store.getRestoredRecordCount();
+    }
+
+    /**
+     * Compacts the store now (for a journal: writes a snapshot and deletes the log segments it covers)
+     * instead of waiting for the background compaction. Other operations keep running meanwhile.
+     *
+     * @return true if anything was compacted, false for an in-memory controller.
+     * @throws IOException if compaction failed.
+     */
+    public boolean compactJournal() throws IOException {
+        return store.compact();
+    }
+
+    /**
+     * Gets the bus on which appointment and schedule changes are published. Subscribers are told about
+     * each change after it is complete; synchronous ones run on the thread that made the change.
+     *
+     * @return The controller's event bus.
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Delivers pending notifications, then flushes and closes the store. The controller should not be changed afterwards.
+     */
+    public void close() {
+        eventBus.close();
+        notificationPipeline.close();
+        synchronized (this) {
+            if (retentionTask != null) {
+                retentionTask.shutdownNow();
+            }
+            if (notificationDispatcher != null) {
+                notificationDispatcher.shutdown(); // Listeners still get what was delivered
+            }
+        }
+        try {
+            if (notificationArchive != null) {
+                notificationArchive.close();
+            }
+            store.close();
+        } catch (IOException e) {
+            System.err.println("Controller: Failed to close store: " + e.getMessage());
+        }
+    }
+
     // --- User Management ---
 
     /**
@@ -71,7 +250,7 @@ private void initializeDefaultSlotsForUser(User staffUser) {
     System.out.println("  Initializing default time slots for new staff: " + username);
 
     // Ensure the primary schedule map exists for this user
-    Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.computeIfAbsent(username, k -> new HashMap<>());
+    StaffSchedule schedule = professorSchedules.computeIfAbsent(username, k -> new StaffSchedule());
 
     LocalDate today = LocalDate.now();
 
@@ -79,36 +258,12 @@ private void initializeDefaultSlotsForUser(User staffUser) {
         LocalDate date = today.plusDays(i);
 
         // Check if slots already exist for this specific day before attempting to add defaults
-        schedule.computeIfAbsent(date, d -> {
-            System.out.println("    -> Creating default slots for date: " + d);
-            List<TimeSlot> slots = new ArrayList<>();
-            // Define the standard default slots (e.g., 9-12, 1-4)
-<<<<<<< HEAD
-            slots.add(new TimeSlot(LocalTime.of(9, 0), LocalTime.of(10, 0), staffUser));
-=======
-            TimeSlot slot9am = new TimeSlot(LocalTime.of(9, 0), LocalTime.of(10, 0), staffUser);
-            System.out.println("      Created 9am slot: isMarkedAvailable=" + slot9am.isMarkedAvailable);
-            slots.add(slot9am);
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
-            slots.add(new TimeSlot(LocalTime.of(10, 0), LocalTime.of(11, 0), staffUser));
-            slots.add(new TimeSlot(LocalTime.of(11, 0), LocalTime.of(12, 0), staffUser));
-            slots.add(new TimeSlot(LocalTime.of(13, 0), LocalTime.of(14, 0), staffUser));
-            slots.add(new TimeSlot(LocalTime.of(14, 0), LocalTime.of(15, 0), staffUser));
-            slots.add(new TimeSlot(LocalTime.of(15, 0), LocalTime.of(16, 0), staffUser));
-<<<<<<< HEAD
-=======
-            // Sort the slots by start time
-            slots.sort(Comparator.comparing(TimeSlot::getStartTime));
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
-            return slots; // Return the newly created list only if the key 'd' was absent
-        });
-
-        // This handles the case where computeIfAbsent was called but returned an existing list.
-        // In such a case, the log message about creation wouldn't have printed,
-        // so we log that we are skipping.
-        if (!schedule.get(date).isEmpty() && !schedule.get(date).get(0).getStartTime().equals(LocalTime.of(9, 0))) { // Check if default was *not* just created
+        if (schedule.hasSlotsOn(date)) {
             System.out.println("    -> Slots already exist for date: " + date + " (Skipping default creation)");
+            continue;
         }
+        System.out.println("    -> Creating default slots for date: " + date);
+        addDefaultSlots(schedule, date, staffUser);
     }
     System.out.println("  Default slots initialization complete for: " + username);
 }
@@ -147,29 +302,30 @@ public User registerUser(String username, String password, String role, String n
         System.err.println("Registration failed: Username, password, and role cannot be empty.");
         return null;
     }
-    if (users.containsKey(username.trim())) {
-        System.err.println("Registration failed: Username '" + username.trim() + "' already exists.");
-        return null;
-    }
-
     String trimmedUsername = username.trim();
     User user = new User(trimmedUsername, password, role, name, email);
-    users.put(trimmedUsername, user);
+    if (users.putIfAbsent(trimmedUsername, user) != null) { // Atomic check-and-insert
+        System.err.println("Registration failed: Username '" + trimmedUsername + "' already exists.");
+        return null;
+    }
 
     // --- Initialize Staff specifics ---
     if (role.equals("PROFESSOR") || role.equals("COUNSELOR")) {
-        queues.put(trimmedUsername, new QueueManager(user));
-        professorSchedules.put(trimmedUsername, new HashMap<>());
-        System.out.println("Initialized queue and schedule map for staff: " + trimmedUsername);
-
-        if (role.equals("PROFESSOR") && subject != null && !subject.trim().isEmpty()) {
-            user.addSubject(subject.trim());
-            System.out.println("  Added subject '" + subject.trim() + "' for Professor: " + trimmedUsername);
-        } else if (role.equals("PROFESSOR")) {
-            System.out.println("  Professor " + trimmedUsername + " registered without an initial subject.");
-        }
-        initializeDefaultSlotsForUser(user); // Initialize schedule slots
-
+        withStaffLock(trimmedUsername, () -> {
+            queues.put(trimmedUsername, new QueueManager(user));
+            professorSchedules.put(trimmedUsername, new StaffSchedule());
+            System.out.println("Initialized queue and schedule map for staff: " + trimmedUsername);
+
+            if (role.equals("PROFESSOR") && subject != null && !subject.trim().isEmpty()) {
+                user.addSubject(subject.trim());
+                System.out.println("  Added subject '" + subject.trim() + "' for Professor: " + trimmedUsername);
+            } else if (role.equals("PROFESSOR")) {
+                System.out.println("  Professor " + trimmedUsername + " registered without an initial subject.");
+            }
+            store.userRegistered(user); // Recorded before the default slots that refer to it
+            initializeDefaultSlotsForUser(user); // Initialize schedule slots
+            return null;
+        });
     }
     // --- START: Initialize Student specifics (Enroll in all Professor subjects) ---
     else if (role.equals("STUDENT")) {
@@ -192,6 +348,10 @@ public User registerUser(String username, String password, String role, String n
         }
     }
     // --- END: Initialize Student specifics ---
+    if (!role.equals("PROFESSOR") && !role.equals("COUNSELOR")) {
+        store.userRegistered(user); // Staff were recorded above, under their lock
+    }
+    store.awaitDurable();
 
     System.out.println("User registered: " + trimmedUsername + " (" + role + ")");
     return user;
@@ -207,6 +367,29 @@ public User registerUser(String username, String password, String role, String n
         return null;
     }
 
+    /**
+     * Adds a subject to a user: one they teach (professor) or are enrolled in (student).
+     *
+     * @param user    The registered user. Must not be null.
+     * @param subject The subject name. Must not be null or blank.
+     * @return true if the user now has the subject, false if the input was invalid.
+     */
+    public boolean addSubject(User user, String subject) {
+        if (user == null || subject == null || subject.trim().isEmpty() || users.get(user.getUsername()) != user) {
+            System.err.println("Add subject failed: Invalid user or empty subject.");
+            return false;
+        }
+        String trimmedSubject = subject.trim();
+        synchronized (user) { // Keeps the subject list and the store's record of it in the same order
+            if (!user.getSubjects().contains(trimmedSubject)) {
+                user.addSubject(trimmedSubject);
+                store.subjectAdded(user.getUsername(), trimmedSubject);
+            }
+        }
+        store.awaitDurable();
+        return true;
+    }
+
     /**
      * Gets a list of all registered users.
      * Returns a new list to prevent external modification of the internal map's values.
@@ -222,37 +405,43 @@ public User registerUser(String username, String password, String role, String n
     /**
      * Initializes default time slots for all registered professors/counselors
      * for the next 7 days. Skips dates/users if slots already exist.
-     * Should typically be called once, e.g., by DataInitializer.
+     * Called by DataInitializer on the first run and by Main on every restored start, so the
+     * rolling week of default availability is topped up; only the slots it creates are journaled.
      */
     public void initializeAllTimeSlots() {
         System.out.println("\nInitializing default time slots (for next 7 days)...");
         LocalDate today = LocalDate.now();
         for (User user : users.values()) {
             if (user.getRole().equals("PROFESSOR") || user.getRole().equals("COUNSELOR")) {
-                // Ensures the user has an entry in the schedule map
-                Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.computeIfAbsent(user.getUsername(), k -> {
-                    System.out.println("  (Creating schedule map entry for " + k + ")");
-                    return new HashMap<>();
-                });
-                System.out.println("Initializing slots for: " + user.getUsername());
-                for (int i = 0; i < 7; i++) {
-                    LocalDate date = today.plusDays(i);
-                    // Only add default slots if NO slots exist for that date yet
-                    schedule.computeIfAbsent(date, d -> {
-                        System.out.println("  -> Creating default slots for date: " + d);
-                        List<TimeSlot> slots = new ArrayList<>();
-                        // Example Default Slots (adjust times/duration as needed)
-                        // Morning
-                        slots.add(new TimeSlot(LocalTime.of(9, 0), LocalTime.of(10, 0), user));
-                        slots.add(new TimeSlot(LocalTime.of(10, 0), LocalTime.of(11, 0), user));
-                        slots.add(new TimeSlot(LocalTime.of(11, 0), LocalTime.of(12, 0), user));
-                        // Afternoon
-                        slots.add(new TimeSlot(LocalTime.of(13, 0), LocalTime.of(14, 0), user));
-                        slots.add(new TimeSlot(LocalTime.of(14, 0), LocalTime.of(15, 0), user));
-                        slots.add(new TimeSlot(LocalTime.of(15, 0), LocalTime.of(16, 0), user));
-                        return slots; // Return the newly created list
+                withStaffLock(user.getUsername(), () -> {
+                    // A staff member still only in the snapshot is loaded only if a day actually needs slots
+                    SnapshotImage image = snapshotImage;
+                    if (image != null && unloadedStaff.contains(user.getUsername())) {
+                        boolean missingDays = false;
+                        for (int i = 0; i < 7 && !missingDays; i++) {
+                            missingDays = !image.hasSlotsOn(user.getUsername(), today.plusDays(i));
+                        }
+                        if (!missingDays) {
+                            return null;
+                        }
+                        ensureStaffLoaded(user.getUsername());
+                    }
+                    // Ensures the user has an entry in the schedule map
+                    StaffSchedule schedule = professorSchedules.computeIfAbsent(user.getUsername(), k -> {
+                        System.out.println("  (Creating schedule map entry for " + k + ")");
+                        return new StaffSchedule();
                     });
-                }
+                    System.out.println("Initializing slots for: " + user.getUsername());
+                    for (int i = 0; i < 7; i++) {
+                        LocalDate date = today.plusDays(i);
+                        // Only add default slots if NO slots exist for that date yet
+                        if (!schedule.hasSlotsOn(date)) {
+                            System.out.println("  -> Creating default slots for date: " + date);
+                            addDefaultSlots(schedule, date, user);
+                        }
+                    }
+                    return null;
+                });
             }
         }
         System.out.println("Default time slot initialization complete.");
@@ -267,17 +456,18 @@ public User registerUser(String username, String password, String role, String n
      * @return A List of available TimeSlot objects, sorted by start time, or an empty list.
      */
     public List<TimeSlot> getAvailableTimeSlots(String username, LocalDate date) {
-        Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.get(username);
+        return withStaffLock(username, () -> doGetAvailableTimeSlots(username, date));
+    }
+
+    // Body of getAvailableTimeSlots; runs with the staff member's lock held
+    private List<TimeSlot> doGetAvailableTimeSlots(String username, LocalDate date) {
+        StaffSchedule schedule = professorSchedules.get(username);
         if (schedule != null) {
-            List<TimeSlot> slotsOnDate = schedule.get(date);
-            if (slotsOnDate != null) {
-                LocalDateTime now = LocalDateTime.now();
-                return slotsOnDate.stream()
-                        .filter(TimeSlot::isAvailable) // Check if the slot is available (marked and not booked)
-                        .filter(slot -> LocalDateTime.of(date, slot.getStartTime()).isAfter(now)) // Filter out past slots
-                        .sorted(Comparator.comparing(TimeSlot::getStartTime)) // Ensure chronological order
-                        .collect(Collectors.toList());
-            }
+            LocalDateTime now = LocalDateTime.now();
+            return schedule.getSlots(date).stream() // Already in chronological order
+                    .filter(TimeSlot::isAvailable) // Check if the slot is available (marked and not booked)
+                    .filter(slot -> LocalDateTime.of(date, slot.getStartTime()).isAfter(now)) // Filter out past slots
+                    .collect(Collectors.toList());
         }
         return new ArrayList<>(); // Return empty list if no schedule or slots found
     }
@@ -289,6 +479,8 @@ public User registerUser(String username, String password, String role, String n
      * Creates a new appointment by finding the next suitable available time slot.
      * Performs validations (including preventing duplicate active bookings) and sends
      * notifications upon successful creation.
+     * The slot is claimed with a compare-and-set on the TimeSlot, without any lock; the staff lock is
+     * only held briefly afterwards to add the appointment to the queue and indexes.
      *
      * @param student            The student booking the appointment.
      * @param professorOrCounselor The staff member being booked.
@@ -334,11 +526,8 @@ public User registerUser(String username, String password, String role, String n
         }
 
         // 3. Check for Existing Pending/In-Progress Appointment with the SAME staff
-        boolean alreadyBookedWithStaff = getUserAppointments(student).stream()
-                .filter(app -> app.getProfessorOrCounselor().equals(professorOrCounselor)) // Check same staff
-                .anyMatch(app -> "PENDING".equalsIgnoreCase(app.getStatus()) || "IN_PROGRESS".equalsIgnoreCase(app.getStatus())); // Check active status
-
-        if (alreadyBookedWithStaff) {
+        ensureStaffLoaded(professorOrCounselor.getUsername()); // The checks and the claim below read the schedule without the lock
+        if (hasActiveAppointmentWith(student, professorOrCounselor)) {
             System.out.println("  FAIL: Student '" + student.getUsername() + "' already has an active (PENDING or IN_PROGRESS) appointment with " + professorOrCounselor.getUsername() + ".");
             // Optional: Consider returning a specific error message or code if the GUI needs to display this exact reason.
             // For now, returning null will trigger the generic "Could not book" message in the GUI,
@@ -346,111 +535,79 @@ public User registerUser(String username, String password, String role, String n
             return null; // Prevent booking a duplicate active appointment with the same staff
         }
 
-        // 4. Find Next Available Slot (Was step 3)
-        Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.get(professorOrCounselor.getUsername());
+        // 4. Claim the earliest suitable slot (Was step 3)
+        StaffSchedule schedule = professorSchedules.get(professorOrCounselor.getUsername());
         if (schedule == null || schedule.isEmpty()) {
             System.out.println("  FAIL: Staff member has no schedule defined.");
             return null;
         }
 
-        TimeSlot selectedSlot = null;
-        LocalDateTime appointmentDateTime = null;
+        // Optimistic, lock-free claim: take the earliest free slot that fits (from the schedule's free-slot index)
+        // and book it with a compare-and-set. If another booker got there first, just move on to the next candidate.
         LocalDateTime now = LocalDateTime.now();
-
-        // Get sorted dates from today onwards
-        List<LocalDate> sortedDates = schedule.keySet().stream()
-                .filter(date -> !date.isBefore(LocalDate.now())) // Filter out past dates entirely
-                .sorted()
-                .collect(Collectors.toList());
-
-        searchLoop:
-        for (LocalDate date : sortedDates) {
-<<<<<<< HEAD
-            List<TimeSlot> slotsOnDate = schedule.get(date);
-            if (slotsOnDate != null) {
-                slotsOnDate.sort(Comparator.comparing(TimeSlot::getStartTime)); // Ensure slots are sorted by time
-                for (TimeSlot slot : slotsOnDate) {
-                    LocalDateTime slotStartDateTime = LocalDateTime.of(date, slot.getStartTime());
-                    // Check if slot is available, can accommodate, and is in the future
-                    if (slot.isAvailable() && slot.canAccommodate(duration) && slotStartDateTime.isAfter(now)) {
-                        selectedSlot = slot;
-                        appointmentDateTime = slotStartDateTime; // Use the actual start time of the slot
-                        System.out.println("  SUCCESS: Found suitable slot: " + appointmentDateTime + " with " + professorOrCounselor.getUsername());
-                        break searchLoop; // Found the earliest suitable slot
-=======
-            // Use getTimeSlotsForDate to get a properly sorted list of slots
-            List<TimeSlot> slotsOnDate = getTimeSlotsForDate(professorOrCounselor.getUsername(), date);
-            if (slotsOnDate != null && !slotsOnDate.isEmpty()) {
-                System.out.println("  Checking slots for date: " + date);
-                // The slots are already sorted by start time, so we'll find the earliest available one
-                for (TimeSlot slot : slotsOnDate) {
-                    LocalDateTime slotStartDateTime = LocalDateTime.of(date, slot.getStartTime());
-                    System.out.println("    Checking slot at " + slot.getStartTime() + 
-                        ": isAvailable=" + slot.isAvailable() + 
-                        ", canAccommodate=" + slot.canAccommodate(duration) + 
-                        ", isAfterNow=" + slotStartDateTime.isAfter(now));
-                    
-                    // Check if slot is available, can accommodate, and is in the future
-                    if (slot.isAvailable() && 
-                        slot.canAccommodate(duration) && 
-                        slotStartDateTime.isAfter(now)) {
-                        selectedSlot = slot;
-                        appointmentDateTime = slotStartDateTime;
-                        System.out.println("  SUCCESS: Found suitable slot: " + appointmentDateTime + " with " + professorOrCounselor.getUsername());
-                        break searchLoop; // Break out of both loops immediately when we find a suitable slot
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
-                    }
-                }
+        Appointment appointment = null;
+        TimeSlot selectedSlot = null;
+        while (selectedSlot == null) {
+            TimeSlot candidate = schedule.findEarliestFreeSlot(now, duration);
+            if (candidate == null) {
+                System.out.println("  FAIL: No suitable available time slots found for the requested duration.");
+                return null;
+            }
+            LocalDate candidateDate = candidate.getDate();
+            if (candidateDate == null) {
+                continue; // Slot was just removed from the schedule
+            }
+            LocalDateTime candidateTime = LocalDateTime.of(candidateDate, candidate.getStartTime()); // Use the actual start time of the slot
+            if (appointment == null) {
+                appointment = new Appointment(nextAppointmentId.getAndIncrement(), student, professorOrCounselor, candidateTime, subject, duration);
+            } else {
+                appointment.setAppointmentTime(candidateTime);
+            }
+            if (candidate.tryBook(appointment)) {
+                selectedSlot = candidate;
             }
         }
-
-        if (selectedSlot == null) {
-            System.out.println("  FAIL: No suitable available time slots found for the requested duration.");
+        LocalDateTime appointmentDateTime = appointment.getAppointmentTime();
+        System.out.println("  SUCCESS: Claimed slot: " + appointmentDateTime + " with " + professorOrCounselor.getUsername());
+
+        // 5. Register the appointment (Was step 4). Only this short step needs the staff lock, for the queue and indexes.
+        Appointment bookedAppointment = appointment;
+        boolean registered = underStaffLock(professorOrCounselor.getUsername(), () -> { // The fsync wait happens once, below
+            // Re-check under the lock: the same student may have booked this staff member concurrently
+            if (hasActiveAppointmentWith(student, professorOrCounselor)) {
+                System.out.println("  FAIL: Student '" + student.getUsername() + "' booked " + professorOrCounselor.getUsername() + " concurrently. Releasing slot.");
+                return false;
+            }
+            QueueManager queue = queues.get(professorOrCounselor.getUsername());
+            if (queue == null) {
+                // This is a critical internal error if a staff member doesn't have a queue
+                System.err.println("  CRITICAL ERROR: QueueManager missing for staff member " + professorOrCounselor.getUsername() + ". Aborting booking.");
+                return false;
+            }
+            appointments.put(bookedAppointment.getId(), bookedAppointment); // Add to master appointment list
+            indexAppointment(bookedAppointment);
+            queue.addAppointment(bookedAppointment); // Add to the staff member's queue
+            store.appointmentBooked(bookedAppointment, appointmentDateTime.toLocalDate(), appointmentDateTime.toLocalTime()); // Slot start = appointment time
+            System.out.println("  Appointment added to queue for " + professorOrCounselor.getUsername());
+            return true;
+        });
+        if (!registered) {
+            selectedSlot.tryRelease(appointment); // Rollback slot booking (the ID is simply left unused)
             return null;
         }
 
-        // 5. Create and Finalize Appointment (Was step 4)
-        Appointment appointment = new Appointment(nextAppointmentId++, student, professorOrCounselor, appointmentDateTime, subject, duration);
-        try {
-            selectedSlot.addAppointment(appointment); // Book the slot
-            appointments.put(appointment.getId(), appointment); // Add to master appointment list
-
-            QueueManager queue = queues.get(professorOrCounselor.getUsername());
-            if (queue != null) {
-                queue.addAppointment(appointment); // Add to the staff member's queue
-                System.out.println("  Appointment added to queue for " + professorOrCounselor.getUsername());
+        store.awaitDurable();
+        emit(new DomainEvent.AppointmentBooked(bookedAppointment)); // Sends the notifications
 
-                // Send Notifications
-                String timeStr = appointmentDateTime.format(NOTIFICATION_TIME_FORMATTER);
-                sendNotification(student, "Appointment booked with " + professorOrCounselor.getName() + " for " + subject + " on " + timeStr + ".");
-                sendNotification(professorOrCounselor, "New appointment booked by " + student.getName() + " for " + subject + " on " + timeStr + ".");
+        System.out.println("  Appointment created successfully (ID: " + appointment.getId() + ").");
+        return appointment;
+    }
 
-                System.out.println("  Appointment created successfully (ID: " + appointment.getId() + ").");
-                return appointment;
-            } else {
-                 // This is a critical internal error if a staff member doesn't have a queue
-                 System.err.println("  CRITICAL ERROR: QueueManager missing for staff member " + professorOrCounselor.getUsername() + ". Aborting booking.");
-                 selectedSlot.removeAppointment(); // Rollback slot booking
-                 appointments.remove(appointment.getId()); // Rollback appointment map entry
-                 nextAppointmentId--; // Rollback ID counter
-                 return null;
-             }
-        } catch (IllegalStateException | NullPointerException e) {
-             // Catch potential issues during slot booking or queue addition
-             System.err.println("  FAIL: Error finalizing booking: " + e.getMessage());
-             // Attempt to rollback state if partially successful
-             if(appointments.containsKey(appointment.getId())) {
-                 appointments.remove(appointment.getId());
-                 nextAppointmentId--;
-             }
-             // We don't need to call selectedSlot.removeAppointment() if addAppointment failed.
-             // If queue.addAppointment failed, the slot is booked but appt not in queue -> need rollback
-             if(!selectedSlot.isAvailable() && selectedSlot.getAppointment() != null && selectedSlot.getAppointment().getId() == appointment.getId()){
-                 selectedSlot.removeAppointment();
-                 System.err.println("    Rolled back time slot booking.");
-             }
-             return null;
-        }
+    /** Checks if a student already has a PENDING or IN_PROGRESS appointment with the given staff member. */
+    private boolean hasActiveAppointmentWith(User student, User staff) {
+        return getUserAppointments(student).stream()
+                .filter(app -> app.getProfessorOrCounselor().equals(staff)) // Check same staff
+                .anyMatch(app -> "PENDING".equalsIgnoreCase(app.getStatus()) || "IN_PROGRESS".equalsIgnoreCase(app.getStatus())); // Check active status
     }
 
     /**
@@ -462,6 +619,11 @@ public User registerUser(String username, String password, String role, String n
      * @return true if cancellation was successful, false otherwise (e.g., appointment not found).
      */
     public boolean cancelAppointment(Appointment appointment) {
+        return withStaffLock(appointment == null ? null : staffKey(appointment.getProfessorOrCounselor()), () -> doCancelAppointment(appointment));
+    }
+
+    // Body of cancelAppointment; runs with the staff member's lock held
+    private boolean doCancelAppointment(Appointment appointment) {
         if (appointment == null) {
              System.err.println("Cancel appointment failed: Appointment object is null.");
              return false;
@@ -479,10 +641,10 @@ public User registerUser(String username, String password, String role, String n
         Appointment removedAppointment = appointments.remove(appointmentId); // Remove from master list first
 
          if (removedAppointment != null) { // Should not be null if containsKey was true, but check anyway
+             store.appointmentCancelled(appointmentId);
+             unindexAppointment(removedAppointment);
              User student = removedAppointment.getStudent();
              User staff = removedAppointment.getProfessorOrCounselor();
-             String subject = removedAppointment.getSubject();
-             LocalDateTime appTime = removedAppointment.getAppointmentTime();
 
              // 2. Remove from Queue if it's still pending
              QueueManager queue = queues.get(staff.getUsername());
@@ -502,10 +664,8 @@ public User registerUser(String username, String password, String role, String n
                   System.out.println("  Freed time slot for cancelled appointment ID " + appointmentId);
              }
 
-            // 4. Send Notifications (use removedAppointment data)
-            String timeStr = appTime.format(NOTIFICATION_TIME_FORMATTER);
-            sendNotification(student, "Your appointment with " + staff.getName() + " for '" + subject + "' on " + timeStr + " has been cancelled.");
-            sendNotification(staff, "Your appointment with " + student.getName() + " for '" + subject + "' on " + timeStr + " has been cancelled.");
+            // 4. Publish the change (sends the notifications once the lock is released)
+            emit(new DomainEvent.AppointmentCancelled(removedAppointment, true));
 
             System.out.println("Appointment ID " + appointmentId + " cancelled successfully.");
             return true; // Cancellation successful
@@ -527,6 +687,11 @@ public User registerUser(String username, String password, String role, String n
      * @return The next Appointment object set to IN_PROGRESS, or null if the queue is empty, staff invalid, or already in a consultation.
      */
     public Appointment getNextAppointment(String username) {
+        return withStaffLock(username, () -> doGetNextAppointment(username));
+    }
+
+    // Body of getNextAppointment; runs with the staff member's lock held
+    private Appointment doGetNextAppointment(String username) {
         User staffUser = users.get(username);
         if (staffUser == null || (!staffUser.getRole().equals("PROFESSOR") && !staffUser.getRole().equals("COUNSELOR"))) {
              System.err.println("GetNextAppointment failed: Invalid staff username '" + username + "'.");
@@ -550,9 +715,11 @@ public User registerUser(String username, String password, String role, String n
         if (nextAppointment != null) {
              if (appointments.containsKey(nextAppointment.getId())) {
                 nextAppointment.setStatus("IN_PROGRESS"); // Update status
+                updatePendingIndex(nextAppointment);
+                store.appointmentStatusChanged(nextAppointment.getId(), "IN_PROGRESS", true); // Polled off the queue above
                  System.out.println("Started appointment ID: " + nextAppointment.getId() + " for staff: " + username + ", student: " + nextAppointment.getStudent().getUsername());
 
-                 sendNotification(nextAppointment.getStudent(), "Your consultation with " + nextAppointment.getProfessorOrCounselor().getName() + " regarding '" + nextAppointment.getSubject() + "' is starting now.");
+                 emit(new DomainEvent.AppointmentStarted(nextAppointment));
                  return nextAppointment;
             } else {
                  System.err.println("CRITICAL ERROR: Appointment ID " + nextAppointment.getId() + " found in queue for '" + username + "' but not in the main appointments map!");
@@ -574,6 +741,11 @@ public User registerUser(String username, String password, String role, String n
      * @return true if the update was successful, false otherwise (e.g., appointment not found).
      */
     public boolean updateAppointmentStatus(Appointment appointment, String newStatus) {
+        return withStaffLock(appointment == null ? null : staffKey(appointment.getProfessorOrCounselor()), () -> doUpdateAppointmentStatus(appointment, newStatus));
+    }
+
+    // Body of updateAppointmentStatus; runs with the staff member's lock held
+    private boolean doUpdateAppointmentStatus(Appointment appointment, String newStatus) {
          if (appointment == null || newStatus == null) {
               System.err.println("Update appointment status failed: Null appointment or status provided.");
               return false;
@@ -597,29 +769,27 @@ public User registerUser(String username, String password, String role, String n
             return true;
         }
         currentAppointment.setStatus(newStatusUpper);
+        updatePendingIndex(currentAppointment);
+        store.appointmentStatusChanged(appointmentId, newStatusUpper, "CANCELLED".equals(newStatusUpper)); // Only cancelling dequeues it below
         System.out.println("Updated status for Appointment ID: " + appointmentId + " from '" + oldStatus + "' to '" + newStatusUpper + "'");
 
          User student = currentAppointment.getStudent();
          User staff = currentAppointment.getProfessorOrCounselor();
-         String subject = currentAppointment.getSubject();
-         LocalDateTime appTime = currentAppointment.getAppointmentTime();
-         String timeStr = appTime.format(NOTIFICATION_TIME_FORMATTER);
 
          if ("COMPLETED".equals(newStatusUpper)) {
              boolean slotFreed = freeUpTimeSlot(currentAppointment);
              if (!slotFreed) System.err.println("  WARN: Could not free time slot for completed appointment ID: " + appointmentId);
               if (!"COMPLETED".equalsIgnoreCase(oldStatus)) {
-                   sendNotification(student, "Your consultation with " + staff.getName() + " regarding '" + subject + "' on " + timeStr + " is complete.");
+                   emit(new DomainEvent.AppointmentCompleted(currentAppointment));
                }
          }
          else if ("CANCELLED".equals(newStatusUpper)) {
              boolean slotFreed = freeUpTimeSlot(currentAppointment);
               if (!slotFreed) System.err.println("  WARN: Could not free time slot for cancelled appointment ID: " + appointmentId);
               if (!"CANCELLED".equalsIgnoreCase(oldStatus)) {
-                   sendNotification(student, "Your appointment with " + staff.getName() + " for '" + subject + "' on " + timeStr + " has been cancelled.");
-                   sendNotification(staff, "Appointment with " + student.getName() + " for '" + subject + "' on " + timeStr + " has been cancelled.");
                     QueueManager queue = queues.get(staff.getUsername());
                     if(queue != null) queue.removeAppointment(currentAppointment);
+                   emit(new DomainEvent.AppointmentCancelled(currentAppointment, false));
                }
           }
         return true;
@@ -639,7 +809,9 @@ public User registerUser(String username, String password, String role, String n
  * - Simply updates the flag and moves it back to the regular queue (no time changes).
  * - Sends notification about priority status change.
  *
- * WARNING: This involves complex time slot reassignments. Rollback on failure is basic.
+ * The swap runs as a single {@link Transaction}: every slot hand-over is validated before anything changes,
+ * and if a step still fails the undo log puts every slot, time and flag back. Slots are handed over in place
+ * (never freed). The work is O(k log n) in the size k of the shift group.
  *          This primarily works reliably on PENDING appointments. Changing priority
  *          of IN_PROGRESS appointments with this logic is generally not recommended.
  *
@@ -648,6 +820,11 @@ public User registerUser(String username, String password, String role, String n
  * @return true if the priority status was successfully updated (including potential time shifts), false otherwise.
  */
 public boolean setPriority(Appointment appointment, boolean isPriority) {
+    return withStaffLock(appointment == null ? null : staffKey(appointment.getProfessorOrCounselor()), () -> doSetPriority(appointment, isPriority));
+}
+
+// Body of setPriority; runs with the staff member's lock held
+private boolean doSetPriority(Appointment appointment, boolean isPriority) {
     if (appointment == null) { System.err.println("Set priority failed: Null appointment."); return false; }
     if (!appointments.containsKey(appointment.getId())) { System.err.println("Set priority failed: Appointment ID " + appointment.getId() + " not found."); return false; }
     Appointment currentAppointment = appointments.get(appointment.getId()); // Use map instance
@@ -673,160 +850,38 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
     if (isPriority) { // Target: isPriority=true
         System.out.println("Attempting to SET priority (Swap & Shift) for PENDING appointment: " + currentAppointment.getId() + " scheduled at " + currentAppointment.getAppointmentTime());
 
-        List<Appointment> pendingSortedAppointments = appointments.values().stream()
-            .filter(app -> app.getProfessorOrCounselor().equals(staff) && "PENDING".equalsIgnoreCase(app.getStatus()))
-            .sorted(Comparator.comparing(Appointment::getAppointmentTime)).collect(Collectors.toList());
-
-        int targetIndex = -1;
-        for (int i = 0; i < pendingSortedAppointments.size(); i++) {
-            if (pendingSortedAppointments.get(i).getId() == currentAppointment.getId()) {
-                targetIndex = i;
-                break;
-            }
-        }
-        if (targetIndex == -1) { System.err.println("Set priority failed: Target PENDING appointment " + currentAppointment.getId() + " unexpectedly not found in sorted list."); return false; }
+        // Shift group: the staff member's PENDING appointments up to and including the target, in time order.
+        // It is the head of the per-staff PENDING index, so it costs O(log n + k) to read.
+        AppointmentIndex pending = pendingAppointments.get(staff.getUsername());
+        IndexKey currentKey = IndexKey.of(currentAppointment);
+        if (pending == null || !pending.entries.containsKey(currentKey)) { System.err.println("Set priority failed: Target PENDING appointment " + currentAppointment.getId() + " unexpectedly not found in staff index."); return false; }
+        List<Appointment> shiftGroup = new ArrayList<>(pending.entries.headMap(currentKey, true).values());
+        int targetIndex = shiftGroup.size() - 1;
 
         if (targetIndex == 0) {
             System.out.println("Appointment " + currentAppointment.getId() + " is already the earliest PENDING. Marking as priority (no time swap).");
-            currentAppointment.setPriority(true);
             queueManager.setPriority(currentAppointment, true);
-            sendNotification(currentAppointment.getStudent(), "Your appointment at " + currentAppointment.getAppointmentTime().format(NOTIFICATION_TIME_FORMATTER) + " is now high priority.");
+            currentAppointment.setPriority(true); // Also covers the case where it isn't queued
+            store.prioritySet(currentAppointment.getId(), true);
+            emit(new DomainEvent.AppointmentPriorityChanged(currentAppointment, true, Collections.emptyList()));
             return true;
         }
-
-        List<Appointment> shiftGroup = pendingSortedAppointments.subList(0, targetIndex + 1);
         System.out.println("Priority Shift group identified (" + shiftGroup.size() + " pending appointments up to index " + targetIndex + ")");
 
-        Map<Integer, LocalDateTime> originalTimes = new HashMap<>();
-        Map<Integer, TimeSlot> originalSlots = new HashMap<>();
-        Map<Integer, Boolean> originalPriorities = new HashMap<>();
-        System.out.println("Storing original state for shift group:");
-        for (Appointment appInGroup : shiftGroup) {
-            TimeSlot slot = findSlotForAppointment(appInGroup);
-            if (slot == null) { System.err.println("Set priority PRE-CHECK FAILED: Cannot find original time slot for appointment " + appInGroup.getId() + ". Aborting."); return false; }
-            originalTimes.put(appInGroup.getId(), appInGroup.getAppointmentTime());
-            originalSlots.put(appInGroup.getId(), slot);
-            originalPriorities.put(appInGroup.getId(), appInGroup.isPriority());
-            System.out.println("  - Stored Original: App " + appInGroup.getId() + " at " + appInGroup.getAppointmentTime() + " in slot " + slot.getStartTime() + ", Priority=" + appInGroup.isPriority());
-        }
-
-        System.out.println("Freeing original slots for shift group...");
-        for (Appointment appInGroup : shiftGroup) {
-            TimeSlot slotToFree = originalSlots.get(appInGroup.getId());
-            if (slotToFree != null && slotToFree.getAppointment() != null && slotToFree.getAppointment().getId() == appInGroup.getId()) {
-                slotToFree.removeAppointment();
-                System.out.println("  - Freed original slot (" + slotToFree.getStartTime() + ") for app " + appInGroup.getId());
-            } else {
-                System.err.println("WARN/ERROR: Could not properly free original slot for app " + appInGroup.getId() + ". State may be unexpected. Aborting swap.");
-                System.err.println("  --- Attempting partial rollback of freed slots ---");
-                for(Appointment appToRollback : shiftGroup){
-                     if(appToRollback.getId() == appInGroup.getId()) break;
-                     TimeSlot freedSlot = originalSlots.get(appToRollback.getId());
-                     if(freedSlot != null && freedSlot.isAvailable()){
-                         try{ freedSlot.addAppointment(appToRollback); System.err.println("    - Rolled back slot for app " + appToRollback.getId()); }
-                         catch(Exception rbEx){ System.err.println("    - Rollback error for app "+appToRollback.getId()+": "+rbEx.getMessage()); }
-                     }
-                 }
-                return false;
-            }
+        Appointment prioritizedApp = currentAppointment;
+        Transaction tx = buildPrioritySwap(shiftGroup, queueManager);
+        if (tx == null) {
+            return false;
         }
-        System.out.println("Original slots freed. Proceeding with time/slot reassignment...");
-
-        try {
-            System.out.println("  Shifting intermediate appointments...");
-            for (int i = 0; i < targetIndex; i++) {
-                Appointment appToMove = shiftGroup.get(i);
-                Appointment appProvidingSlot = shiftGroup.get(i + 1);
-                LocalDateTime newTime = originalTimes.get(appProvidingSlot.getId());
-                TimeSlot targetSlot = originalSlots.get(appProvidingSlot.getId());
-
-                if (targetSlot == null) throw new IllegalStateException("Critical Error during swap: Original slot mapping missing for app " + appProvidingSlot.getId());
-                System.out.println("    - Moving App " + appToMove.getId() + " to time " + newTime + " (original slot of App " + appProvidingSlot.getId() + ")");
-
-                if (!targetSlot.isAvailable() || !targetSlot.canAccommodate(appToMove.getEstimatedDuration())) {
-                     throw new IllegalStateException("SWAP PRE-BOOK CHECK FAILED: Target slot "+ targetSlot.getStartTime() + " for app " + appToMove.getId() + " became unavailable or too small during swap!");
-                }
-                appToMove.setAppointmentTime(newTime);
-                targetSlot.addAppointment(appToMove);
-                sendNotification(appToMove.getStudent(), "Your appointment time with " + staff.getName() + " was adjusted to " + newTime.format(NOTIFICATION_TIME_FORMATTER) + " due to a queue priority change.");
-            }
-
-            System.out.println("  Moving prioritized appointment...");
-            Appointment prioritizedApp = shiftGroup.get(targetIndex);
-            Appointment firstAppInGroup = shiftGroup.get(0);
-            LocalDateTime firstOriginalTime = originalTimes.get(firstAppInGroup.getId());
-            TimeSlot firstOriginalSlot = originalSlots.get(firstAppInGroup.getId());
-
-            if (firstOriginalSlot == null) throw new IllegalStateException("Critical Error during swap: Original first slot mapping missing for app " + firstAppInGroup.getId());
-            System.out.println("    - Moving Prioritized App " + prioritizedApp.getId() + " to time " + firstOriginalTime + " (original slot of App " + firstAppInGroup.getId() + ")");
-
-            if (!firstOriginalSlot.isAvailable() || !firstOriginalSlot.canAccommodate(prioritizedApp.getEstimatedDuration())) {
-                throw new IllegalStateException("SWAP PRE-BOOK CHECK FAILED: Original first slot "+ firstOriginalSlot.getStartTime() + " for prioritized app " + prioritizedApp.getId() + " became unavailable or too small during swap!");
-            }
-            prioritizedApp.setAppointmentTime(firstOriginalTime);
-            firstOriginalSlot.addAppointment(prioritizedApp);
-
-            System.out.println("  Updating priority flag and queue manager...");
-            prioritizedApp.setPriority(true);
-            queueManager.setPriority(prioritizedApp, true);
-
-            System.out.println("Successfully set priority for appointment " + prioritizedApp.getId() + " and shifted others.");
-            sendNotification(prioritizedApp.getStudent(), "Your appointment with " + staff.getName() + " at " + prioritizedApp.getAppointmentTime().format(NOTIFICATION_TIME_FORMATTER) + " is now high priority.");
-
-            return true; // Success!
-
-        } catch (Exception e) {
-            System.err.println("<<<<<<<<<<<<<<< ERROR during priority reassignment phase: " + e.getMessage() + " >>>>>>>>>>>>>>>");
-            System.err.println("<<<<<<<<<<<<<<< ATTEMPTING ROLLBACK from stored original state... >>>>>>>>>>>>>>>");
-            e.printStackTrace();
-
-            for (Map.Entry<Integer, TimeSlot> entry : originalSlots.entrySet()) {
-                 int appIdToRestore = entry.getKey();
-                 TimeSlot originalSlot = entry.getValue();
-                 LocalDateTime originalTime = originalTimes.get(appIdToRestore);
-                 boolean originalPrio = originalPriorities.getOrDefault(appIdToRestore, false);
-                 Appointment appToRestore = appointments.get(appIdToRestore);
-
-                 if (appToRestore != null && originalSlot != null && originalTime != null) {
-                     System.err.println("  Rollback for App ID: " + appIdToRestore);
-                      TimeSlot incorrectSlot = findSlotForAppointment(appToRestore);
-                      if (incorrectSlot != null && !incorrectSlot.equals(originalSlot)) {
-                         System.err.println("    - Found in incorrect slot (" + incorrectSlot.getStartTime() + "), freeing it.");
-                         incorrectSlot.removeAppointment();
-                      } else if (incorrectSlot == null && !originalSlot.isAvailable() && originalSlot.getAppointment()!= null && originalSlot.getAppointment().getId() != appIdToRestore ){
-                          System.err.println("    - WARNING: Original slot occupied by unexpected App ID "+ originalSlot.getAppointment().getId()+". Cannot forcibly restore.");
-                          continue;
-                      } else if (incorrectSlot == null){
-                           System.err.println("    - App wasn't found in any slot.");
-                       }
-
-                      appToRestore.setAppointmentTime(originalTime);
-                      appToRestore.setPriority(originalPrio);
-                       System.err.println("    - Reset time to " + originalTime + ", priority to " + originalPrio);
-
-                      try {
-                          if (originalSlot.isAvailable()) {
-                              originalSlot.addAppointment(appToRestore);
-                              System.err.println("    - SUCCESS: Restored App " + appIdToRestore + " to original slot " + originalSlot.getStartTime());
-                          } else if (originalSlot.getAppointment() != null && originalSlot.getAppointment().getId() == appIdToRestore) {
-                              System.err.println("    - INFO: App " + appIdToRestore + " already correctly in original slot " + originalSlot.getStartTime() + ".");
-                          } else {
-                              System.err.println("    - *** ROLLBACK FAILED: Original slot " + originalSlot.getStartTime() + " is unexpectedly occupied! By AppID: " + (originalSlot.getAppointment()!=null ? originalSlot.getAppointment().getId() : "null"));
-                           }
-                      } catch (Exception rollbackEx) {
-                           System.err.println("    - *** ROLLBACK EXCEPTION trying to book original slot " + originalSlot.getStartTime() + ": " + rollbackEx.getMessage());
-                       }
-
-                       queueManager.setPriority(appToRestore, appToRestore.isPriority());
-
-                  } else {
-                      System.err.println("  Skipping rollback for App ID: " + appIdToRestore + " (incomplete original data)");
-                   }
-              }
-              System.err.println("<<<<<<<<<<<<<<< ROLLBACK ATTEMPT COMPLETE. Final state may be inconsistent. >>>>>>>>>>>>>>>");
-              return false;
-         } // End try-catch for reassignment
+        tx.afterCommit(() -> store.prioritySwapped(shiftGroup));
+        tx.afterCommit(() -> emit(new DomainEvent.AppointmentPriorityChanged(prioritizedApp, true, new ArrayList<>(shiftGroup.subList(0, targetIndex)))));
 
+        if (!tx.commit()) {
+            System.err.println("Set priority failed for appointment " + prioritizedApp.getId() + "; no changes were kept.");
+            return false;
+        }
+        System.out.println("Successfully set priority for appointment " + prioritizedApp.getId() + " and shifted others.");
+        return true;
 
      } else { // Target: isPriority=false
         System.out.println("Attempting to REMOVE priority for PENDING appointment: " + currentAppointment.getId());
@@ -834,8 +889,9 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
         boolean moved = queueManager.setPriority(currentAppointment, false); // Update queue manager
 
         if (moved) {
+             store.prioritySet(currentAppointment.getId(), false);
              System.out.println("Removed priority status for appointment " + currentAppointment.getId());
-             sendNotification(currentAppointment.getStudent(), "The high priority status for your appointment with " + staff.getName() + " on " + currentAppointment.getAppointmentTime().format(NOTIFICATION_TIME_FORMATTER) + " has been removed.");
+             emit(new DomainEvent.AppointmentPriorityChanged(currentAppointment, false, Collections.emptyList()));
              return true; // Success
         } else {
              System.err.println("Remove priority failed: Could not update queue manager for ID: " + currentAppointment.getId());
@@ -845,6 +901,54 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
      }
  }
 
+/**
+ * Builds (without committing) the swap-and-shift transaction for a shift group: the last appointment
+ * takes the first one's slot, and every other appointment moves one slot later. Used both for live
+ * priority changes and when replaying them from the store.
+ *
+ * @return The transaction, or null if an appointment in the group isn't holding a slot.
+ */
+private Transaction buildPrioritySwap(List<Appointment> shiftGroup, QueueManager queueManager) {
+    // Snapshot where everyone is now; every write below is relative to this
+    List<TimeSlot> originalSlots = new ArrayList<>(shiftGroup.size());
+    List<LocalDateTime> originalTimes = new ArrayList<>(shiftGroup.size());
+    for (Appointment appInGroup : shiftGroup) {
+        TimeSlot slot = findSlotForAppointment(appInGroup);
+        if (slot == null) { System.err.println("Set priority PRE-CHECK FAILED: Cannot find original time slot for appointment " + appInGroup.getId() + ". Aborting."); return null; }
+        originalSlots.add(slot);
+        originalTimes.add(appInGroup.getAppointmentTime());
+    }
+
+    // Slot j goes to the target (j == 0) or to the appointment just before it (j > 0). Slots are handed over
+    // in place (TimeSlot.tryReplace), so they are never momentarily free for a concurrent lock-free booking.
+    int targetIndex = shiftGroup.size() - 1;
+    Appointment prioritizedApp = shiftGroup.get(targetIndex);
+    Transaction tx = new Transaction("priority swap for appointment " + prioritizedApp.getId());
+    for (int j = 0; j < shiftGroup.size(); j++) {
+        TimeSlot slot = originalSlots.get(j);
+        Appointment holder = shiftGroup.get(j);
+        Appointment incoming = (j == 0) ? prioritizedApp : shiftGroup.get(j - 1);
+        LocalDateTime incomingOldTime = originalTimes.get(j == 0 ? targetIndex : j - 1);
+        LocalDateTime newTime = originalTimes.get(j);
+        tx.write("slot " + slot.getStartTime() + ": App " + holder.getId() + " -> App " + incoming.getId(),
+            () -> slot.getAppointment() == holder && slot.getDurationMinutes() >= incoming.getEstimatedDuration(),
+            () -> {
+                if (!slot.tryReplace(holder, incoming)) {
+                    throw new IllegalStateException("Slot " + slot.getStartTime() + " no longer held App " + holder.getId());
+                }
+            },
+            () -> slot.tryReplace(incoming, holder));
+        tx.write("move App " + incoming.getId() + " to " + newTime,
+            () -> rescheduleAppointment(incoming, newTime),
+            () -> rescheduleAppointment(incoming, incomingOldTime));
+    }
+    tx.write("mark App " + prioritizedApp.getId() + " as priority",
+        () -> { prioritizedApp.setPriority(true); queueManager.updateAppointment(prioritizedApp); },
+        () -> { prioritizedApp.setPriority(false); queueManager.updateAppointment(prioritizedApp); });
+
+    return tx;
+}
+
     // --- Schedule Management (Enhanced) ---
 
     /**
@@ -856,25 +960,18 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
      * @return A List of all TimeSlot objects for that date, sorted by start time, or an empty list.
      */
     public List<TimeSlot> getTimeSlotsForDate(String username, LocalDate date) {
+        return withStaffLock(username, () -> doGetTimeSlotsForDate(username, date));
+    }
+
+    // Body of getTimeSlotsForDate; runs with the staff member's lock held
+    private List<TimeSlot> doGetTimeSlotsForDate(String username, LocalDate date) {
         User staffUser = users.get(username);
         if (staffUser == null || (!staffUser.getRole().equals("PROFESSOR") && !staffUser.getRole().equals("COUNSELOR"))) {
             return new ArrayList<>();
         }
-        Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.get(username);
+        StaffSchedule schedule = professorSchedules.get(username);
         if (schedule != null) {
-            List<TimeSlot> slotsOnDate = schedule.get(date);
-            if (slotsOnDate != null) {
-<<<<<<< HEAD
-                return slotsOnDate.stream()
-                        .sorted(Comparator.comparing(TimeSlot::getStartTime))
-                        .collect(Collectors.toList());
-=======
-                // Create a new sorted list to avoid modifying the original
-                List<TimeSlot> sortedSlots = new ArrayList<>(slotsOnDate);
-                sortedSlots.sort(Comparator.comparing(TimeSlot::getStartTime));
-                return sortedSlots;
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
-            }
+            return schedule.getSlots(date); // Fresh list, already sorted by start time
         }
         return new ArrayList<>();
     }
@@ -890,6 +987,11 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
      * @return true if the slot was added successfully, false otherwise.
      */
     public boolean addTimeSlot(User staffUser, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return withStaffLock(staffKey(staffUser), () -> doAddTimeSlot(staffUser, date, startTime, endTime));
+    }
+
+    // Body of addTimeSlot; runs with the staff member's lock held
+    private boolean doAddTimeSlot(User staffUser, LocalDate date, LocalTime startTime, LocalTime endTime) {
         if (staffUser == null || date == null || startTime == null || endTime == null) {
             System.err.println("Add Time Slot failed: Null input parameter(s).");
             return false;
@@ -903,25 +1005,26 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
             System.err.println("Add Time Slot failed for " + staffUser.getUsername() + " on " + date + ": End time [" + endTime + "] must be after start time [" + startTime + "].");
             return false;
         }
+        if (!TimeSlot.isWholeMinute(startTime) || !TimeSlot.isWholeMinute(endTime)) {
+            System.err.println("Add Time Slot failed for " + staffUser.getUsername() + " on " + date + ": Slot times [" + startTime + "-" + endTime + "] must be whole minutes.");
+            return false;
+        }
         LocalDateTime newSlotStartDateTime = LocalDateTime.of(date, startTime);
         if (newSlotStartDateTime.isBefore(LocalDateTime.now().plusMinutes(1))) {
             System.err.println("Add Time Slot failed for " + staffUser.getUsername() + " on " + date + ": Cannot add slots starting in the past or within the next minute [" + newSlotStartDateTime.toLocalTime() + "].");
             return false;
         }
 
-        Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.computeIfAbsent(staffUser.getUsername(), k -> new HashMap<>());
-        List<TimeSlot> existingSlotsOnDate = schedule.computeIfAbsent(date, d -> new ArrayList<>());
+        StaffSchedule schedule = professorSchedules.computeIfAbsent(staffUser.getUsername(), k -> new StaffSchedule());
 
-        for (TimeSlot existing : existingSlotsOnDate) {
-            if (startTime.isBefore(existing.getEndTime()) && endTime.isAfter(existing.getStartTime())) {
-                System.err.println("Add Time Slot failed for " + staffUser.getUsername() + " on " + date + ": New slot [" + startTime + "-" + endTime + "] overlaps with existing slot [" + existing.getStartTime() + "-" + existing.getEndTime() + "].");
-                return false;
-            }
+        TimeSlot existing = schedule.findOverlap(date, startTime, endTime);
+        if (existing != null) {
+            System.err.println("Add Time Slot failed for " + staffUser.getUsername() + " on " + date + ": New slot [" + startTime + "-" + endTime + "] overlaps with existing slot [" + existing.getStartTime() + "-" + existing.getEndTime() + "].");
+            return false;
         }
 
         TimeSlot newSlot = new TimeSlot(startTime, endTime, staffUser);
-        existingSlotsOnDate.add(newSlot);
-        existingSlotsOnDate.sort(Comparator.comparing(TimeSlot::getStartTime));
+        addSlot(schedule, date, newSlot);
 
         System.out.println("Controller: Added Time Slot for " + staffUser.getUsername() + " on " + date + " from " + startTime + " to " + endTime);
 
@@ -934,6 +1037,82 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
         return true;
     }
 
+    /**
+     * Adds a batch of new available time slots for a staff member on one date.
+     * The whole batch is validated first (valid ranges, not in the past, no overlaps with each other
+     * or with existing slots) and is only inserted if every range passes; otherwise nothing is added.
+     * Sorting the batch once means internal overlaps are found by comparing neighbours, and each
+     * range is checked against the existing schedule with a single O(log n) lookup.
+     *
+     * @param staffUser The User object for the professor or counselor. Must be a valid staff user present in the system.
+     * @param date      The date for the new slots. Must not be null.
+     * @param ranges    The start/end ranges to add. Must not be null or empty.
+     * @return true if all slots were added, false if the batch was rejected.
+     */
+    public boolean addTimeSlots(User staffUser, LocalDate date, List<TimeRange> ranges) {
+        return withStaffLock(staffKey(staffUser), () -> doAddTimeSlots(staffUser, date, ranges));
+    }
+
+    // Body of addTimeSlots; runs with the staff member's lock held
+    private boolean doAddTimeSlots(User staffUser, LocalDate date, List<TimeRange> ranges) {
+        if (staffUser == null || date == null || ranges == null || ranges.isEmpty() || ranges.stream().anyMatch(Objects::isNull)) {
+            System.err.println("Add Time Slots failed: Null or empty input parameter(s).");
+            return false;
+        }
+        if (!users.containsKey(staffUser.getUsername()) ||
+            (!staffUser.getRole().equals("PROFESSOR") && !staffUser.getRole().equals("COUNSELOR"))) {
+             System.err.println("Add Time Slots failed: Provided user '" + staffUser.getUsername() + "' is not a valid staff member in the system.");
+            return false;
+        }
+
+        for (TimeRange range : ranges) {
+            if (!TimeSlot.isWholeMinute(range.getStartTime()) || !TimeSlot.isWholeMinute(range.getEndTime())) {
+                System.err.println("Add Time Slots failed for " + staffUser.getUsername() + " on " + date + ": Slot times [" + range + "] must be whole minutes.");
+                return false;
+            }
+        }
+
+        List<TimeRange> sortedRanges = new ArrayList<>(ranges);
+        sortedRanges.sort(Comparator.comparing(TimeRange::getStartTime));
+
+        LocalDateTime earliestAllowed = LocalDateTime.now().plusMinutes(1);
+        if (LocalDateTime.of(date, sortedRanges.get(0).getStartTime()).isBefore(earliestAllowed)) {
+            System.err.println("Add Time Slots failed for " + staffUser.getUsername() + " on " + date + ": Cannot add slots starting in the past or within the next minute [" + sortedRanges.get(0) + "].");
+            return false;
+        }
+
+        StaffSchedule schedule = professorSchedules.computeIfAbsent(staffUser.getUsername(), k -> new StaffSchedule());
+        for (int i = 0; i < sortedRanges.size(); i++) {
+            TimeRange range = sortedRanges.get(i);
+            if (i > 0 && sortedRanges.get(i - 1).overlaps(range)) {
+                System.err.println("Add Time Slots failed for " + staffUser.getUsername() + " on " + date + ": Ranges [" + sortedRanges.get(i - 1) + "] and [" + range + "] in the batch overlap.");
+                return false;
+            }
+            TimeSlot existing = schedule.findOverlap(date, range.getStartTime(), range.getEndTime());
+            if (existing != null) {
+                System.err.println("Add Time Slots failed for " + staffUser.getUsername() + " on " + date + ": New slot [" + range + "] overlaps with existing slot [" + existing.getStartTime() + "-" + existing.getEndTime() + "].");
+                return false;
+            }
+        }
+
+        for (TimeRange range : sortedRanges) {
+            addSlot(schedule, date, new TimeSlot(range.getStartTime(), range.getEndTime(), staffUser));
+        }
+
+        TimeRange first = sortedRanges.get(0);
+        TimeRange last = sortedRanges.get(sortedRanges.size() - 1);
+        System.out.println("Controller: Added " + sortedRanges.size() + " Time Slots for " + staffUser.getUsername() + " on " + date + " between " + first.getStartTime() + " and " + last.getEndTime());
+
+        String formattedMessage = String.format("Availability added: %s, %d slot(s) between %s and %s.",
+                date.toString(),
+                sortedRanges.size(),
+                first.getStartTime().format(SHORT_TIME_FORMATTER),
+                last.getEndTime().format(SHORT_TIME_FORMATTER)
+        );
+        sendNotification(staffUser, formattedMessage);
+        return true;
+    }
+
     /**
      * Removes an *available* time slot for a staff member.
      * Validates inputs and fails if the slot does not exist, is booked, or user is invalid.
@@ -944,6 +1123,11 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
      * @return true if the slot was successfully found, was available, and was removed, false otherwise.
      */
     public boolean removeTimeSlot(User staffUser, LocalDate date, TimeSlot timeSlotToRemove) {
+        return withStaffLock(staffKey(staffUser), () -> doRemoveTimeSlot(staffUser, date, timeSlotToRemove));
+    }
+
+    // Body of removeTimeSlot; runs with the staff member's lock held
+    private boolean doRemoveTimeSlot(User staffUser, LocalDate date, TimeSlot timeSlotToRemove) {
         if (staffUser == null || date == null || timeSlotToRemove == null) {
             System.err.println("Remove Time Slot failed: Null input parameter(s).");
             return false;
@@ -954,28 +1138,23 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
             return false;
         }
 
-        Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.get(staffUser.getUsername());
+        StaffSchedule schedule = professorSchedules.get(staffUser.getUsername());
         if (schedule == null) {
             System.err.println("Remove Time Slot failed: No schedule map found for user " + staffUser.getUsername() + ".");
             return false;
         }
-        List<TimeSlot> slotsOnDate = schedule.get(date);
-        if (slotsOnDate == null || slotsOnDate.isEmpty()) {
+        if (!schedule.hasSlotsOn(date)) {
             System.err.println("Remove Time Slot failed: No slots found for date " + date + " for user " + staffUser.getUsername() + ".");
             return false;
         }
 
-        Optional<TimeSlot> foundSlotOptional = slotsOnDate.stream()
-                                                      .filter(slot -> slot.equals(timeSlotToRemove))
-                                                      .findFirst();
+        TimeSlot slotInstanceToRemove = schedule.getSlot(date, timeSlotToRemove.getStartTime());
 
-        if (!foundSlotOptional.isPresent()) {
+        if (slotInstanceToRemove == null || !slotInstanceToRemove.equals(timeSlotToRemove)) {
             System.err.println("Remove Time Slot failed: Slot matching " + timeSlotToRemove.getStartTime() + "-" + timeSlotToRemove.getEndTime() + " not found in the schedule for " + date + " for user " + staffUser.getUsername() + ".");
             return false;
         }
 
-        TimeSlot slotInstanceToRemove = foundSlotOptional.get();
-
         if (!slotInstanceToRemove.isAvailable()) {
             String bookerInfo = "a booking";
              if(slotInstanceToRemove.getAppointment() != null && slotInstanceToRemove.getAppointment().getStudent() != null){
@@ -985,9 +1164,11 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
             return false;
         }
 
-        boolean removed = slotsOnDate.remove(slotInstanceToRemove);
+        boolean removed = schedule.removeSlot(date, slotInstanceToRemove);
 
         if (removed) {
+            store.slotRemoved(staffUser.getUsername(), date, slotInstanceToRemove.getStartTime());
+            emit(new DomainEvent.SlotRemoved(staffUser.getUsername(), date, slotInstanceToRemove));
             System.out.println("Controller: Removed available Time Slot for " + staffUser.getUsername() + " on " + date + " from " + slotInstanceToRemove.getStartTime() + " to " + slotInstanceToRemove.getEndTime());
 
             String formattedMessage = String.format("Availability removed: %s from %s to %s.",
@@ -997,8 +1178,7 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
             );
             sendNotification(staffUser, formattedMessage);
 
-            if (slotsOnDate.isEmpty()) {
-                schedule.remove(date);
+            if (!schedule.hasSlotsOn(date)) {
                 System.out.println("  -> Date entry " + date + " removed from schedule map as it's now empty.");
             }
             return true;
@@ -1008,28 +1188,345 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
         }
     }
 
+    /**
+     * Marks an existing time slot as available or unavailable for booking (a booked slot keeps its booking).
+     *
+     * @param staffUser The User object for the professor or counselor. Must be a valid staff user.
+     * @param date      The date of the slot. Must not be null.
+     * @param timeSlot  The slot to change (matched by start time and TimeSlot.equals). Must not be null.
+     * @param available true to open the slot for booking, false to close it.
+     * @return true if the slot was found and updated, false otherwise.
+     */
+    public boolean setTimeSlotAvailability(User staffUser, LocalDate date, TimeSlot timeSlot, boolean available) {
+        return withStaffLock(staffKey(staffUser), () -> doSetTimeSlotAvailability(staffUser, date, timeSlot, available));
+    }
+
+    // Body of setTimeSlotAvailability; runs with the staff member's lock held
+    private boolean doSetTimeSlotAvailability(User staffUser, LocalDate date, TimeSlot timeSlot, boolean available) {
+        if (staffUser == null || date == null || timeSlot == null) {
+            System.err.println("Set Time Slot availability failed: Null input parameter(s).");
+            return false;
+        }
+        StaffSchedule schedule = professorSchedules.get(staffUser.getUsername());
+        TimeSlot slot = (schedule != null) ? schedule.getSlot(date, timeSlot.getStartTime()) : null;
+        if (slot == null || !slot.equals(timeSlot)) {
+            System.err.println("Set Time Slot availability failed: Slot " + timeSlot.getStartTime() + "-" + timeSlot.getEndTime() + " not found on " + date + " for user " + staffUser.getUsername() + ".");
+            return false;
+        }
+        if (slot.isMarkedAvailable() != available) {
+            slot.setMarkedAvailable(available);
+            store.slotAvailabilityChanged(staffUser.getUsername(), date, slot.getStartTime(), available);
+        }
+        return true;
+    }
+
     // --- Helper methods ---
-    /** Helper method to find the TimeSlot object currently holding a specific appointment. */
+    /**
+     * Runs an action while holding the given staff member's lock (or unlocked if the username is null),
+     * then, once no staff lock is held any more, waits for the store to make the changes the action reported durable.
+     */
+    private <T> T withStaffLock(String staffUsername, Supplier<T> action) {
+        T result;
+        try {
+            result = underStaffLock(staffUsername, action);
+        } catch (RuntimeException e) {
+            if (staffLockDepth.get()[0] == 0) {
+                pendingEvents.get().clear(); // The change failed; its events never happened
+            }
+            throw e;
+        }
+        if (staffLockDepth.get()[0] == 0) {
+            store.awaitDurable(); // Never wait for the disk while other threads may be waiting for our lock
+            publishPendingEvents();
+        }
+        return result;
+    }
+
+    /** Runs an action while holding the given staff member's lock, without waiting for the store. */
+    private <T> T underStaffLock(String staffUsername, Supplier<T> action) {
+        if (staffUsername == null) {
+            return action.get(); // Invalid input; the action itself reports the failure
+        }
+        ReentrantLock lock = staffLocks.computeIfAbsent(staffUsername, k -> new ReentrantLock());
+        int[] depth = staffLockDepth.get();
+        lock.lock();
+        depth[0]++;
+        try {
+            ensureStaffLoaded(staffUsername);
+            return action.get();
+        } finally {
+            depth[0]--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a domain event. Under a staff lock the event is held back and published by
+     * {@link #withStaffLock} once the lock is released and the change is durable, so subscribers never
+     * run while a staff lock is held (they may call back into the controller).
+     */
+    private void emit(DomainEvent event) {
+        if (staffLockDepth.get()[0] > 0) {
+            pendingEvents.get().add(event);
+        } else {
+            eventBus.publish(event);
+        }
+    }
+
+    private void publishPendingEvents() {
+        List<DomainEvent> pending = pendingEvents.get();
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<DomainEvent> events = new ArrayList<>(pending);
+        pending.clear(); // Before publishing: a subscriber may change the controller and emit again
+        for (DomainEvent event : events) {
+            eventBus.publish(event);
+        }
+    }
+
+    /**
+     * Creates a staff member's slots and appointments from the startup snapshot the first time they are
+     * needed. Runs under that staff member's lock, so other threads wait until the rows are all in place.
+     * Safe to call while holding another staff lock: a staff lock is only held over rows that are not
+     * loaded yet while they are being loaded, and loading takes no other locks.
+     */
+    private void ensureStaffLoaded(String staffUsername) {
+        if (staffUsername == null || !unloadedStaff.contains(staffUsername)) {
+            return;
+        }
+        ReentrantLock lock = staffLocks.computeIfAbsent(staffUsername, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            if (unloadedStaff.contains(staffUsername)) {
+                loadStaffFromSnapshot(staffUsername);
+                unloadedStaff.remove(staffUsername); // Only now may other threads skip the lock
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Makes sure the appointment with the given ID (if it is in the startup snapshot) has been loaded. */
+    private void ensureAppointmentLoaded(int appointmentId) {
+        SnapshotImage image = snapshotImage;
+        if (image != null && !unloadedStaff.isEmpty()) {
+            ensureStaffLoaded(image.staffOfAppointment(appointmentId));
+        }
+    }
+
+    private void loadStaffFromSnapshot(String staffUsername) {
+        SnapshotImage image = snapshotImage;
+        User staff = users.get(staffUsername);
+        StaffSchedule schedule = professorSchedules.computeIfAbsent(staffUsername, k -> new StaffSchedule());
+        QueueManager queue = queues.get(staffUsername);
+        image.forEachSlot(staffUsername, (date, start, end, markedAvailable) -> {
+            TimeSlot slot = new TimeSlot(start, end, staff);
+            schedule.addSlot(date, slot);
+            if (!markedAvailable) {
+                slot.setMarkedAvailable(false);
+            }
+        });
+        image.forEachAppointment(staffUsername, (id, student, subject, duration, time, status, priority, inQueue, holdsSlot) -> {
+            Appointment appointment = new Appointment(id, users.get(student), staff, time, subject, duration);
+            appointment.setStatus(status);
+            appointment.setPriority(priority);
+            if (holdsSlot) {
+                restoreSlotBooking(appointment, staffUsername, time.toLocalDate(), time.toLocalTime());
+            }
+            appointments.put(id, appointment);
+            indexAppointment(appointment);
+            if (inQueue) {
+                queue.addAppointment(appointment);
+            }
+        });
+    }
+
+    /**
+     * Gets a user's notification inbox, creating it from the startup snapshot on first use.
+     *
+     * @param create Whether to create an empty inbox if the user has no notifications yet.
+     * @return The user's inbox, or null if there is none and {@code create} is false.
+     */
+    private NotificationInbox inboxOf(String username, boolean create) {
+        NotificationInbox inbox = userNotifications.get(username);
+        if (inbox != null) {
+            return inbox;
+        }
+        SnapshotImage image = snapshotImage;
+        if (!create && (image == null || !image.hasNotifications(username))) {
+            return null;
+        }
+        return userNotifications.computeIfAbsent(username, k -> {
+            NotificationInbox created = new NotificationInbox();
+            if (image != null) {
+                image.notifications(k).forEach(created::add);
+            }
+            return created;
+        });
+    }
+
+    /** Null-safe username of a staff user, used as the lock key. */
+    private static String staffKey(User staffUser) {
+        return staffUser == null ? null : staffUser.getUsername();
+    }
+
+    /** Adds a slot to a staff schedule and records it in the store. */
+    private boolean addSlot(StaffSchedule schedule, LocalDate date, TimeSlot slot) {
+        if (!schedule.addSlot(date, slot)) {
+            return false;
+        }
+        store.slotAdded(slot.getProfessorOrCounselor().getUsername(), date, slot);
+        emit(new DomainEvent.SlotAdded(slot.getProfessorOrCounselor().getUsername(), date, slot));
+        return true;
+    }
+
+    /** Adds the standard default slots (9-12, 1-4, one hour each) for a date to a staff schedule. */
+    private void addDefaultSlots(StaffSchedule schedule, LocalDate date, User staffUser) {
+        addSlot(schedule, date, new TimeSlot(LocalTime.of(9, 0), LocalTime.of(10, 0), staffUser));
+        addSlot(schedule, date, new TimeSlot(LocalTime.of(10, 0), LocalTime.of(11, 0), staffUser));
+        addSlot(schedule, date, new TimeSlot(LocalTime.of(11, 0), LocalTime.of(12, 0), staffUser));
+        addSlot(schedule, date, new TimeSlot(LocalTime.of(13, 0), LocalTime.of(14, 0), staffUser));
+        addSlot(schedule, date, new TimeSlot(LocalTime.of(14, 0), LocalTime.of(15, 0), staffUser));
+        addSlot(schedule, date, new TimeSlot(LocalTime.of(15, 0), LocalTime.of(16, 0), staffUser));
+    }
+
+    /** Adds an appointment to the per-student and per-staff indexes (and the PENDING index, if it is pending). */
+    private void indexAppointment(Appointment appointment) {
+        IndexKey key = IndexKey.of(appointment);
+        putIndexEntry(studentAppointments, appointment.getStudent(), key, appointment);
+        putIndexEntry(staffAppointments, appointment.getProfessorOrCounselor(), key, appointment);
+        updatePendingIndex(appointment);
+    }
+
+    /** Removes an appointment from every per-user index. */
+    private void unindexAppointment(Appointment appointment) {
+        IndexKey key = IndexKey.of(appointment);
+        removeIndexEntry(studentAppointments, appointment.getStudent(), key);
+        removeIndexEntry(staffAppointments, appointment.getProfessorOrCounselor(), key);
+        removeIndexEntry(pendingAppointments, appointment.getProfessorOrCounselor(), key);
+    }
+
+    /** Adds the appointment to, or drops it from, its staff member's PENDING index after a status change. */
+    private void updatePendingIndex(Appointment appointment) {
+        IndexKey key = IndexKey.of(appointment);
+        if ("PENDING".equalsIgnoreCase(appointment.getStatus())) {
+            putIndexEntry(pendingAppointments, appointment.getProfessorOrCounselor(), key, appointment);
+        } else {
+            removeIndexEntry(pendingAppointments, appointment.getProfessorOrCounselor(), key);
+        }
+    }
+
+    // Index maps are never removed once created, so a put can't land in one another thread just dropped
+    private static void putIndexEntry(Map<String, AppointmentIndex> index, User user, IndexKey key, Appointment appointment) {
+        if (user != null) {
+            index.computeIfAbsent(user.getUsername(), k -> new AppointmentIndex()).entries.put(key, appointment);
+        }
+    }
+
+    private static void removeIndexEntry(Map<String, AppointmentIndex> index, User user, IndexKey key) {
+        AppointmentIndex userIndex = (user != null) ? index.get(user.getUsername()) : null;
+        if (userIndex != null) {
+            userIndex.entries.remove(key);
+        }
+    }
+
+    private static void moveIndexEntry(Map<String, AppointmentIndex> index, User user, IndexKey oldKey, IndexKey newKey, Appointment appointment) {
+        AppointmentIndex userIndex = (user != null) ? index.get(user.getUsername()) : null;
+        if (userIndex != null) {
+            userIndex.move(oldKey, newKey, appointment);
+        }
+    }
+
+    /** Per-user index key: appointment time, then ID. Fixed when made, so the entry can still be found after the appointment moves. */
+    private static final class IndexKey implements Comparable<IndexKey> {
+        final LocalDateTime time;
+        final int id;
+
+        IndexKey(LocalDateTime time, int id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        static IndexKey of(Appointment appointment) {
+            return new IndexKey(appointment.getAppointmentTime(), appointment.getId());
+        }
+
+        @Override
+        public int compareTo(IndexKey other) {
+            int byTime = time.compareTo(other.time);
+            return byTime != 0 ? byTime : Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * One user's appointments in time order. Adds and removes are single skip-list operations. A move puts the
+     * entry under its new time before removing the old one, but a reader walking the list can still pass the new
+     * spot just before the put and reach the old one just after the remove, so {@link #copyTo} walks again if a
+     * move started during its walk.
+     */
+    private static final class AppointmentIndex {
+        final ConcurrentSkipListMap<IndexKey, Appointment> entries = new ConcurrentSkipListMap<>();
+        private final AtomicInteger movesInProgress = new AtomicInteger(); // Moves may run under different staff locks
+        private final AtomicLong movesStarted = new AtomicLong();
+
+        // Re-keys an entry; no-op if the appointment isn't in this index
+        void move(IndexKey oldKey, IndexKey newKey, Appointment appointment) {
+            if (!entries.containsKey(oldKey)) {
+                return;
+            }
+            movesInProgress.incrementAndGet(); // Before movesStarted, so a reader that misses the new count sees this
+            movesStarted.incrementAndGet();
+            try {
+                entries.put(newKey, appointment);
+                entries.remove(oldKey);
+            } finally {
+                movesInProgress.decrementAndGet();
+            }
+        }
+
+        // Appends the appointments in order, as they stood while no move was under way
+        void copyTo(List<Appointment> result) {
+            int start = result.size();
+            while (true) {
+                long started = movesStarted.get();
+                if (movesInProgress.get() == 0) {
+                    result.addAll(entries.values());
+                    if (movesStarted.get() == started) {
+                        return;
+                    }
+                    result.subList(start, result.size()).clear(); // A move overlapped the walk
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Changes an appointment's time while keeping the per-user indexes and the staff queue ordered. Each index
+     * entry is re-keyed in place (see AppointmentIndex), so the appointment is never missing from an index.
+     */
+    private void rescheduleAppointment(Appointment appointment, LocalDateTime newTime) {
+        IndexKey oldKey = IndexKey.of(appointment);
+        appointment.setAppointmentTime(newTime);
+        if (appointments.containsKey(appointment.getId())) {
+            IndexKey newKey = IndexKey.of(appointment);
+            moveIndexEntry(studentAppointments, appointment.getStudent(), oldKey, newKey, appointment);
+            moveIndexEntry(staffAppointments, appointment.getProfessorOrCounselor(), oldKey, newKey, appointment);
+            moveIndexEntry(pendingAppointments, appointment.getProfessorOrCounselor(), oldKey, newKey, appointment);
+        }
+        QueueManager queue = queues.get(appointment.getProfessorOrCounselor().getUsername());
+        if (queue != null) queue.updateAppointment(appointment); // No-op if it isn't queued
+    }
+
+    /** Helper method to find the TimeSlot object currently holding a specific appointment (via its slot back-reference). */
     private TimeSlot findSlotForAppointment(Appointment appointment) {
          if (appointment == null) return null;
-         User staff = appointment.getProfessorOrCounselor();
-         LocalDateTime appTime = appointment.getAppointmentTime();
-         if (staff == null || appTime == null) return null;
-
-         Map<LocalDate, List<TimeSlot>> schedule = professorSchedules.get(staff.getUsername());
-         if (schedule != null) {
-             List<TimeSlot> slotsOnDate = schedule.get(appTime.toLocalDate());
-             if (slotsOnDate != null) {
-                 for (TimeSlot slot : slotsOnDate) {
-                     if (slot.getStartTime().equals(appTime.toLocalTime()) &&
-                         slot.getAppointment() != null &&
-                         slot.getAppointment().getId() == appointment.getId()) {
-                          return slot;
-                      }
-                  }
-              }
-          }
-         System.err.println("Warn: findSlotForAppointment couldn't find matching slot for Appointment ID " + appointment.getId() + " scheduled at " + appTime);
+         TimeSlot slot = appointment.getTimeSlot();
+         if (slot != null && slot.getAppointment() != null && slot.getAppointment().getId() == appointment.getId()) {
+             return slot;
+         }
+         System.err.println("Warn: findSlotForAppointment couldn't find matching slot for Appointment ID " + appointment.getId() + " scheduled at " + appointment.getAppointmentTime());
          return null;
      }
 
@@ -1041,8 +1538,7 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
         }
         TimeSlot slot = findSlotForAppointment(appointment);
         if (slot != null) {
-             if (!slot.isAvailable() && slot.getAppointment() != null && slot.getAppointment().getId() == appointment.getId()){
-                 slot.removeAppointment();
+             if (slot.tryRelease(appointment)) { // Only frees the slot if this appointment still holds it
                  System.out.println("  Freed time slot (" + slot.getStartTime() + " on " + appointment.getAppointmentTime().toLocalDate() + ") for appointment ID " + appointment.getId());
                  return true;
              } else {
@@ -1057,72 +1553,276 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
 
     // --- Queue and Information Retrieval ---
 
-    /** Gets all appointments associated with a user (as student or staff), sorted by time. */
+    /** Gets all appointments associated with a user (as student or staff), sorted by time. Served from the per-user indexes. */
     public List<Appointment> getUserAppointments(User user) {
         if (user == null) return new ArrayList<>();
         String username = user.getUsername();
-        return appointments.values().stream()
-                .filter(app -> (app.getStudent() != null && app.getStudent().getUsername().equals(username)) ||
-                                (app.getProfessorOrCounselor() != null && app.getProfessorOrCounselor().getUsername().equals(username)))
-                .sorted(Comparator.comparing(Appointment::getAppointmentTime))
-                .collect(Collectors.toList());
+        ensureStaffLoaded(username);
+        SnapshotImage image = snapshotImage;
+        if (image != null && !unloadedStaff.isEmpty()) {
+            image.staffOfStudent(username).forEach(this::ensureStaffLoaded); // The student's bookings live with each staff member
+        }
+        AppointmentIndex asStudent = studentAppointments.get(username);
+        AppointmentIndex asStaff = staffAppointments.get(username);
+        List<Appointment> result = new ArrayList<>();
+        if (asStudent != null) asStudent.copyTo(result);
+        if (asStaff != null) asStaff.copyTo(result);
+        if (asStudent != null && !asStudent.entries.isEmpty() && asStaff != null && !asStaff.entries.isEmpty()) {
+            result.sort(APPOINTMENT_TIME_ORDER); // Only needed if a user somehow appears on both sides
+        }
+        return result;
     }
 
     /** Gets the current total queue size (pending priority + regular) for a staff member. */
     public int getQueueSize(String username) {
         QueueManager q = queues.get(username);
-        return (q != null) ? q.getQueueSize() : 0; // Return 0 if no queue manager
+        return (q != null) ? withStaffLock(username, q::getQueueSize) : 0; // Return 0 if no queue manager
+    }
+
+    /** Gets a staff member's queued appointments in serving order (priority first, then by time). */
+    public List<Appointment> getQueuedAppointments(String username) {
+        QueueManager q = queues.get(username);
+        return (q != null) ? withStaffLock(username, q::getOrderedAppointments) : new ArrayList<>();
     }
 
-    /** Gets the QueueManager instance for a staff member. */
-    public QueueManager getQueueManager(String username) {
-        return queues.get(username); // Returns null if user isn't staff or not found
+    /**
+     * Gets a student's current place in line for one of their pending appointments.
+     * O(log n) in the queue length; the queue is not copied or sorted.
+     *
+     * @param appointment The appointment to look up.
+     * @return The appointment's QueuePosition, or null if it is not waiting in a queue.
+     */
+    public QueuePosition getQueuePosition(Appointment appointment) {
+        if (appointment == null || appointment.getProfessorOrCounselor() == null) {
+            return null;
+        }
+        String staffUsername = appointment.getProfessorOrCounselor().getUsername();
+        QueueManager q = queues.get(staffUsername);
+        return (q != null) ? withStaffLock(staffUsername, () -> q.getPosition(appointment)) : null;
     }
 
     /** Gets the estimated total wait time in minutes for a staff member's queue. */
     public int getEstimatedWaitTime(String username) {
         QueueManager q = queues.get(username);
-        return (q != null) ? q.getEstimatedWaitTime() : 0; // Return 0 if no queue manager
+        return (q != null) ? withStaffLock(username, q::getEstimatedWaitTime) : 0; // Return 0 if no queue manager
     }
 
     // --- Notification Management ---
 
-    /** Sends a notification to a specific user. */
+    /** Sends a notification to a specific user. Only queues it; see {@link #deliverNotifications(List)}. */
     private void sendNotification(User user, String message) {
         if (user == null || message == null || message.trim().isEmpty()) return;
-        Notification notification = new Notification(LocalDateTime.now(), message);
-        userNotifications.computeIfAbsent(user.getUsername(), k -> new ArrayList<>()).add(notification);
-        System.out.println(">>> Controller: Sent notification to " + user.getUsername() + ": \"" + message + "\"");
+        notificationPipeline.publish(user.getUsername(), NotificationContent.plain(message));
+    }
+
+    /**
+     * Sends a standard message about an appointment to a specific user. The appointment's details are
+     * captured now, but the text is only built when the notification is first read.
+     */
+    private void sendNotification(User user, NotificationTemplate template, Appointment appointment) {
+        if (user == null) return;
+        notificationPipeline.publish(user.getUsername(), NotificationContent.of(template,
+                appointment.getProfessorOrCounselor().getName(), appointment.getStudent().getName(),
+                appointment.getSubject(), appointment.getAppointmentTime()));
+    }
+
+    /** Sends the notifications for appointment events (a synchronous subscriber of the event bus). */
+    private void sendAppointmentNotifications(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            Appointment appointment = ((DomainEvent.AppointmentEvent) event).getAppointment();
+            User student = appointment.getStudent();
+            User staff = appointment.getProfessorOrCounselor();
+            if (event instanceof DomainEvent.AppointmentBooked) {
+                sendNotification(student, NotificationTemplate.BOOKED_FOR_STUDENT, appointment);
+                sendNotification(staff, NotificationTemplate.BOOKED_FOR_STAFF, appointment);
+            } else if (event instanceof DomainEvent.AppointmentCancelled) {
+                sendNotification(student, NotificationTemplate.CANCELLED_FOR_STUDENT, appointment);
+                sendNotification(staff, ((DomainEvent.AppointmentCancelled) event).isRemoved()
+                        ? NotificationTemplate.CANCELLED_FOR_STAFF : NotificationTemplate.STATUS_CANCELLED_FOR_STAFF, appointment);
+            } else if (event instanceof DomainEvent.AppointmentStarted) {
+                sendNotification(student, NotificationTemplate.STARTING, appointment);
+            } else if (event instanceof DomainEvent.AppointmentCompleted) {
+                sendNotification(student, NotificationTemplate.COMPLETED, appointment);
+            } else if (event instanceof DomainEvent.AppointmentPriorityChanged) {
+                DomainEvent.AppointmentPriorityChanged change = (DomainEvent.AppointmentPriorityChanged) event;
+                if (!change.isPriority()) {
+                    sendNotification(student, NotificationTemplate.PRIORITY_REMOVED, appointment);
+                } else if (change.getRescheduled().isEmpty()) {
+                    sendNotification(student, NotificationTemplate.PRIORITY_SET_IN_PLACE, appointment);
+                } else {
+                    for (Appointment moved : change.getRescheduled()) {
+                        sendNotification(moved.getStudent(), NotificationTemplate.TIME_ADJUSTED, moved);
+                    }
+                    sendNotification(student, NotificationTemplate.PRIORITY_SET, appointment);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts a batch of queued notifications into the users' inboxes (runs on the pipeline's delivery thread).
+     * Each one is reported to the store before it becomes visible, so a later "read" record always follows it.
+     */
+    private void deliverNotifications(List<NotificationPipeline.Pending> batch) {
+        ZoneId zone = ZoneId.systemDefault();
+        List<Map.Entry<String, Notification>> delivered = notificationSubscribers.isEmpty() ? null : new ArrayList<>(batch.size());
+        for (NotificationPipeline.Pending pending : batch) {
+            Notification notification = new Notification(LocalDateTime.ofInstant(Instant.ofEpochMilli(pending.publishedMillis), zone), pending.content);
+            store.notificationSent(pending.username, notification);
+            inboxOf(pending.username, true).add(notification);
+            if (delivered != null) {
+                delivered.add(Map.entry(pending.username, notification));
+            }
+            System.out.println(">>> Controller: Sent notification " + notification.getDisplayId() + " to " + pending.username); // Doesn't render the text
+        }
+        store.awaitDurable(); // One sync for the whole batch
+        if (delivered != null) {
+            publishToSubscribers(delivered);
+        }
     }
 
-    /** Retrieves a list of UNREAD notifications for a user, sorted newest first. */
+    // Hands each subscribed user's share of a delivered batch to that user's listeners, in delivery order
+    private void publishToSubscribers(List<Map.Entry<String, Notification>> delivered) {
+        Map<String, List<Notification>> byUser = new LinkedHashMap<>();
+        for (Map.Entry<String, Notification> entry : delivered) {
+            if (notificationSubscribers.containsKey(entry.getKey())) {
+                byUser.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, List<Notification>> user : byUser.entrySet()) {
+            List<Notification> notifications = Collections.unmodifiableList(user.getValue());
+            for (NotificationSubscriber subscriber : notificationSubscribers.getOrDefault(user.getKey(), Collections.emptyList())) {
+                subscriber.dispatch(user.getKey(), notifications);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener for a user's new notifications. It is called on the controller's notification
+     * dispatch thread (one thread for all such listeners, so a slow listener delays the others but never
+     * delivery itself). Only notifications delivered after this call are reported; load the current ones
+     * with {@link #getUserNotifications(String)}, and skip any reported notification whose ID is not above
+     * the newest ID already shown (IDs increase in delivery order).
+     *
+     * @param username The user whose notifications to watch.
+     * @param listener Receives each batch of new notifications.
+     */
+    public void subscribeNotifications(String username, NotificationListener listener) {
+        ExecutorService dispatcher;
+        synchronized (this) {
+            if (notificationDispatcher == null) {
+                notificationDispatcher = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "notification-dispatch");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            dispatcher = notificationDispatcher;
+        }
+        subscribeNotifications(username, listener, dispatcher);
+    }
+
+    /**
+     * Registers a listener for a user's new notifications, called through the given executor
+     * (e.g. {@code SwingUtilities::invokeLater} to be called on the Swing event thread).
+     * The executor must run tasks in the order they are submitted, or batches may arrive out of order.
+     *
+     * @see #subscribeNotifications(String, NotificationListener)
+     */
+    public void subscribeNotifications(String username, NotificationListener listener, Executor executor) {
+        Objects.requireNonNull(username, "Username cannot be null");
+        NotificationSubscriber subscriber = new NotificationSubscriber(Objects.requireNonNull(listener, "Listener cannot be null"),
+                Objects.requireNonNull(executor, "Executor cannot be null"));
+        notificationSubscribers.computeIfAbsent(username, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    /**
+     * Removes a listener registered with {@link #subscribeNotifications}. Batches already handed to its
+     * executor may still arrive.
+     *
+     * @return true if the listener was subscribed for that user.
+     */
+    public boolean unsubscribeNotifications(String username, NotificationListener listener) {
+        boolean[] removed = new boolean[1];
+        notificationSubscribers.computeIfPresent(username, (k, subscribers) -> {
+            removed[0] = subscribers.removeIf(s -> s.listener == listener);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        return removed[0];
+    }
+
+    /** A listener and the executor its calls go through. */
+    private static final class NotificationSubscriber {
+        final NotificationListener listener;
+        final Executor executor;
+
+        NotificationSubscriber(NotificationListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        void dispatch(String username, List<Notification> notifications) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        listener.notificationsDelivered(username, notifications);
+                    } catch (RuntimeException e) {
+                        System.err.println("Controller: Notification listener for " + username + " failed: " + e);
+                    }
+                });
+            } catch (RuntimeException e) { // e.g. the executor was shut down
+                System.err.println("Controller: Could not dispatch notifications to a listener for " + username + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Waits until every notification sent before this call is in its user's inbox (and durable, for a
+     * persistent store). Use before reading notifications that an action of the same user just caused.
+     */
+    public void flushNotifications() {
+        notificationPipeline.flush();
+    }
+
+    /** Retrieves a list of UNREAD notifications for a user, newest first. */
     public List<Notification> getUserNotifications(String username) {
-        return userNotifications.getOrDefault(username, new ArrayList<>()) // Get list or empty if none
-               .stream()
-               .filter(n -> !n.isRead()) // Keep only unread notifications
-               .sorted(Comparator.comparing(Notification::getTimestamp).reversed()) // Sort by timestamp descending
-               .collect(Collectors.toList());
+        return getUserNotifications(username, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves a page of a user's newest UNREAD notifications, newest first.
+     * Costs O(limit): the inbox keeps its unread notifications linked in delivery order.
+     *
+     * @param limit Maximum number of notifications to return.
+     */
+    public List<Notification> getUserNotifications(String username, int limit) {
+        NotificationInbox inbox = inboxOf(username, false);
+        return (inbox != null) ? inbox.getUnread(limit) : new ArrayList<>(); // Empty if none
+    }
+
+    /** Gets the number of unread notifications a user has (a running count; O(1)). */
+    public int getUnreadNotificationCount(String username) {
+        NotificationInbox inbox = inboxOf(username, false);
+        return (inbox != null) ? inbox.getUnreadCount() : 0;
     }
 
     /** Marks a single notification as read by its ID. */
-    public boolean markSingleNotificationAsRead(String username, String notificationId) {
-        if (username == null || notificationId == null) {
-            System.err.println("Mark single notification read failed: Null username or notification ID.");
+    public boolean markSingleNotificationAsRead(String username, long notificationId) {
+        if (username == null) {
+            System.err.println("Mark single notification read failed: Null username.");
             return false;
         }
-        List<Notification> userNots = userNotifications.get(username);
-        if (userNots != null) {
-            for (Notification n : userNots) {
-                if (notificationId.equals(n.getId())) { // Find by unique ID
-                    if (!n.isRead()) {
-                        n.setRead(true); // Mark as read
-                        System.out.println("Marked notification ID " + notificationId + " as read for user " + username);
-                        return true; // Success
-                    } else {
-                        System.out.println("Notification ID " + notificationId + " was already read for user " + username);
-                        return true; // Already read, still considered success
-                    }
-                }
+        NotificationInbox inbox = inboxOf(username, false);
+        if (inbox != null) {
+            if (inbox.markRead(notificationId)) { // Found by ID through the inbox's index
+                store.notificationRead(username, notificationId);
+                store.awaitDurable();
+                System.out.println("Marked notification ID " + notificationId + " as read for user " + username);
+                return true; // Success
+            }
+            if (inbox.get(notificationId) != null) {
+                System.out.println("Notification ID " + notificationId + " was already read for user " + username);
+                return true; // Already read, still considered success
             }
             System.err.println("Mark single notification read failed: Notification ID '" + notificationId + "' not found for user " + username);
             return false;
@@ -1135,17 +1835,13 @@ public boolean setPriority(Appointment appointment, boolean isPriority) {
      /** Marks all notifications for a user as read. */
      public void markAllNotificationsAsRead(String username) {
         if (username == null) return;
-        List<Notification> userNots = userNotifications.get(username);
-        if (userNots != null && !userNots.isEmpty()) {
-            int count = 0;
-            for (Notification n : userNots) {
-                if (!n.isRead()) { // Only mark if currently unread
-                    n.setRead(true);
-                    count++;
-                }
-            }
-            if (count > 0) {
-                 System.out.println("Marked " + count + " notifications as read for user " + username);
+        NotificationInbox inbox = inboxOf(username, false);
+        if (inbox != null && inbox.size() > 0) {
+            long through = inbox.markAllRead(); // Moves the inbox's read watermark; no notification is visited
+            if (through > 0) {
+                 store.allNotificationsRead(username, through); // Replay marks only up to this ID, never a later delivery
+                 store.awaitDurable();
+                 System.out.println("Marked notifications up to #" + through + " as read for user " + username);
              } else {
                  System.out.println("No unread notifications found to mark as read for user " + username);
              }
@@ -1173,6 +1869,7 @@ public Map<String, Object> getStaffAnalytics(User staffUser) {
     LocalDate startOfWeek = now.toLocalDate().with(TemporalAdjusters.previousOrSame(java.time.DayOfWeek.MONDAY));
     LocalDate startOfMonth = now.toLocalDate().withDayOfMonth(1);
 
+    ensureStaffLoaded(username);
     List<Appointment> completedAppointments = appointments.values().stream()
             .filter(app -> app.getProfessorOrCounselor().getUsername().equals(username))
             .filter(app -> "COMPLETED".equalsIgnoreCase(app.getStatus()))
@@ -1227,6 +1924,330 @@ public Map<String, Object> getStaffAnalytics(User staffUser) {
     return analytics;
 }
 
+    // --- Notification Retention ---
+
+    /**
+     * Starts enforcing a retention policy: every few minutes, notifications outside the policy are
+     * appended to the archive file and then removed from the inboxes (and from the store's state).
+     * Can only be enabled once per controller.
+     *
+     * @param policy      Which notifications to keep in memory.
+     * @param archiveFile The archive file; created if it doesn't exist, appended to otherwise.
+     * @throws IOException if the archive cannot be opened.
+     */
+    public synchronized void enableNotificationRetention(RetentionPolicy policy, Path archiveFile) throws IOException {
+        Objects.requireNonNull(policy, "Retention policy cannot be null");
+        if (retentionPolicy != null) {
+            throw new IllegalStateException("Notification retention is already enabled");
+        }
+        notificationArchive = NotificationArchive.open(archiveFile);
+        retentionPolicy = policy;
+        retentionTask = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-retention");
+            t.setDaemon(true);
+            return t;
+        });
+        retentionTask.scheduleWithFixedDelay(() -> {
+            try {
+                enforceNotificationRetention();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Controller: Notification retention failed, will retry later: " + e.getMessage());
+            }
+        }, 0, RETENTION_CHECK_MINUTES, TimeUnit.MINUTES);
+        System.out.println("Controller: Notification retention enabled: " + policy + ", archive " + archiveFile);
+    }
+
+    /**
+     * Runs one retention pass now (it also runs periodically in the background). Notifications are
+     * written to the archive, and forced to disk, before they leave the inboxes.
+     *
+     * @return The number of notifications moved to the archive (0 if retention is not enabled).
+     * @throws IOException if the archive cannot be written; nothing is removed from the inboxes then.
+     */
+    public int enforceNotificationRetention() throws IOException {
+        RetentionPolicy policy = retentionPolicy;
+        if (policy == null) {
+            return 0;
+        }
+        synchronized (notificationArchive) { // One pass at a time, so a notification is never archived twice
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime removeBefore = policy.removeBefore(now);
+            LocalDateTime removeReadBefore = policy.removeReadBefore(now);
+            Map<String, List<NotificationArchive.Archived>> batch = new LinkedHashMap<>();
+            int batchSize = 0;
+            int moved = 0;
+            for (String username : users.keySet()) {
+                NotificationInbox inbox = inboxOf(username, false);
+                if (inbox == null) {
+                    continue;
+                }
+                List<Notification> expired = inbox.getExpired(policy.getMaxPerUser(), removeBefore, removeReadBefore);
+                if (expired.isEmpty()) {
+                    continue;
+                }
+                List<NotificationArchive.Archived> archived = new ArrayList<>(expired.size());
+                for (Notification notification : expired) {
+                    archived.add(new NotificationArchive.Archived(notification, inbox.isRead(notification)));
+                }
+                batch.put(username, archived);
+                batchSize += archived.size();
+                if (batchSize >= ARCHIVE_BATCH) {
+                    moved += archiveAndRemove(batch);
+                    batch.clear();
+                    batchSize = 0;
+                }
+            }
+            moved += archiveAndRemove(batch);
+            if (moved > 0) {
+                System.out.println("Controller: Moved " + moved + " notification(s) to the archive");
+            }
+            return moved;
+        }
+    }
+
+    // Archives a batch, then drops it from the inboxes and tells the store
+    private int archiveAndRemove(Map<String, List<NotificationArchive.Archived>> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        notificationArchive.append(batch);
+        int removed = 0;
+        for (Map.Entry<String, List<NotificationArchive.Archived>> user : batch.entrySet()) {
+            NotificationInbox inbox = inboxOf(user.getKey(), false);
+            long[] ids = new long[user.getValue().size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = user.getValue().get(i).notification.getId();
+                inbox.remove(ids[i]);
+            }
+            store.notificationsExpired(user.getKey(), ids);
+            removed += ids.length;
+        }
+        store.awaitDurable();
+        return removed;
+    }
+
+    /**
+     * Reads a user's archived notifications back from the archive file, newest first. Their read
+     * flags are as they were when they were archived.
+     *
+     * @return The archived notifications (empty if there are none, retention is not enabled or the archive can't be read).
+     */
+    public List<Notification> getArchivedNotifications(String username) {
+        NotificationArchive archive = notificationArchive;
+        if (archive == null || username == null) {
+            return new ArrayList<>();
+        }
+        try {
+            List<Notification> archived = new ArrayList<>(archive.query(username));
+            Collections.reverse(archived);
+            return archived;
+        } catch (IOException e) {
+            System.err.println("Controller: Could not read notification archive for " + username + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // --- Journal replay (called by the store while it loads) ---
+    // These apply recorded outcomes directly: no validation, notifications or journaling.
+
+    void restoreUser(User user) {
+        users.put(user.getUsername(), user);
+        if (user.getRole().equals("PROFESSOR") || user.getRole().equals("COUNSELOR")) {
+            queues.put(user.getUsername(), new QueueManager(user));
+            professorSchedules.put(user.getUsername(), new StaffSchedule());
+        }
+    }
+
+    void restoreSubject(String username, String subject) {
+        User user = users.get(username);
+        if (user != null) {
+            user.addSubject(subject);
+        }
+    }
+
+    void restoreSlot(String staffUsername, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        if (!TimeSlot.isWholeMinute(startTime) || !TimeSlot.isWholeMinute(endTime)) {
+            throw new IllegalStateException("Journal replay: slot " + date + " " + startTime + "-" + endTime + " of " + staffUsername + " is not on whole minutes");
+        }
+        ensureStaffLoaded(staffUsername);
+        professorSchedules.computeIfAbsent(staffUsername, k -> new StaffSchedule())
+                .addSlot(date, new TimeSlot(startTime, endTime, users.get(staffUsername)));
+    }
+
+    void restoreSlotRemoval(String staffUsername, LocalDate date, LocalTime startTime) {
+        ensureStaffLoaded(staffUsername);
+        StaffSchedule schedule = professorSchedules.get(staffUsername);
+        TimeSlot slot = (schedule != null) ? schedule.getSlot(date, startTime) : null;
+        if (slot != null) {
+            schedule.removeSlot(date, slot);
+        }
+    }
+
+    void restoreSlotAvailability(String staffUsername, LocalDate date, LocalTime startTime, boolean available) {
+        ensureStaffLoaded(staffUsername);
+        StaffSchedule schedule = professorSchedules.get(staffUsername);
+        TimeSlot slot = (schedule != null) ? schedule.getSlot(date, startTime) : null;
+        if (slot != null) {
+            slot.setMarkedAvailable(available);
+        }
+    }
+
+    void restoreBooking(int id, String studentUsername, String staffUsername, String subject, int duration, LocalDate slotDate, LocalTime slotStart) {
+        ensureStaffLoaded(staffUsername);
+        Appointment appointment = new Appointment(id, users.get(studentUsername), users.get(staffUsername), LocalDateTime.of(slotDate, slotStart), subject, duration);
+        restoreSlotBooking(appointment, staffUsername, slotDate, slotStart);
+        appointments.put(id, appointment);
+        indexAppointment(appointment);
+        queues.get(staffUsername).addAppointment(appointment);
+        nextAppointmentId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Starts from a snapshot: creates all users right away and leaves everything else in the mapped
+     * file until first use. Must be called on an empty controller, before any log records are replayed.
+     */
+    void restoreSnapshot(SnapshotImage image) {
+        for (User user : image.users()) {
+            restoreUser(user);
+        }
+        nextAppointmentId.accumulateAndGet(image.getNextAppointmentId(), Math::max);
+        Notification.reserveIdsThrough(image.getMaxNotificationId()); // Inboxes are only created later
+        unloadedStaff.addAll(image.staffUsernames());
+        snapshotImage = image;
+    }
+
+    private void restoreSlotBooking(Appointment appointment, String staffUsername, LocalDate slotDate, LocalTime slotStart) {
+        StaffSchedule schedule = professorSchedules.get(staffUsername);
+        TimeSlot slot = (schedule != null) ? schedule.getSlot(slotDate, slotStart) : null;
+        if (slot == null) {
+            throw new IllegalStateException("Journal replay: slot " + slotDate + " " + slotStart + " of " + staffUsername + " missing for appointment " + appointment.getId());
+        }
+        // The slot may have been closed after the (lock-free) claim but before the booking was recorded
+        boolean markedAvailable = slot.isMarkedAvailable();
+        slot.setMarkedAvailable(true);
+        boolean booked = slot.tryBook(appointment);
+        slot.setMarkedAvailable(markedAvailable);
+        if (!booked) {
+            throw new IllegalStateException("Journal replay: slot " + slotDate + " " + slotStart + " of " + staffUsername + " already taken for appointment " + appointment.getId());
+        }
+    }
+
+    void restoreCancellation(int appointmentId) {
+        ensureAppointmentLoaded(appointmentId);
+        Appointment appointment = appointments.remove(appointmentId);
+        if (appointment == null) {
+            return;
+        }
+        unindexAppointment(appointment);
+        queues.get(appointment.getProfessorOrCounselor().getUsername()).removeAppointment(appointment);
+        TimeSlot slot = appointment.getTimeSlot();
+        if (slot != null) {
+            slot.tryRelease(appointment);
+        }
+    }
+
+    void restoreStatus(int appointmentId, String status, boolean leftQueue) {
+        ensureAppointmentLoaded(appointmentId);
+        Appointment appointment = appointments.get(appointmentId);
+        if (appointment == null) {
+            return;
+        }
+        appointment.setStatus(status);
+        updatePendingIndex(appointment);
+        if (leftQueue) {
+            queues.get(appointment.getProfessorOrCounselor().getUsername()).removeAppointment(appointment);
+        }
+        if ("COMPLETED".equals(status) || "CANCELLED".equals(status)) {
+            TimeSlot slot = appointment.getTimeSlot();
+            if (slot != null) {
+                slot.tryRelease(appointment);
+            }
+        }
+    }
+
+    void restorePriority(int appointmentId, boolean priority) {
+        ensureAppointmentLoaded(appointmentId);
+        Appointment appointment = appointments.get(appointmentId);
+        if (appointment != null) {
+            appointment.setPriority(priority);
+            queues.get(appointment.getProfessorOrCounselor().getUsername()).updateAppointment(appointment);
+        }
+    }
+
+    void restorePrioritySwap(int[] shiftGroupIds) {
+        List<Appointment> shiftGroup = new ArrayList<>(shiftGroupIds.length);
+        for (int id : shiftGroupIds) {
+            ensureAppointmentLoaded(id);
+            shiftGroup.add(appointments.get(id));
+        }
+        Appointment target = shiftGroup.get(shiftGroup.size() - 1);
+        Transaction tx = buildPrioritySwap(shiftGroup, queues.get(target.getProfessorOrCounselor().getUsername()));
+        if (tx == null || !tx.commit()) {
+            throw new IllegalStateException("Journal replay: priority swap for appointment " + target.getId() + " could not be re-applied");
+        }
+    }
+
+    void restoreNotification(String username, Notification notification) {
+        inboxOf(username, true).add(notification);
+    }
+
+    void restoreNotificationRead(String username, long notificationId) {
+        NotificationInbox inbox = inboxOf(username, false);
+        if (inbox != null) {
+            inbox.markRead(notificationId);
+        }
+    }
+
+    void restoreAllNotificationsRead(String username, long throughId) {
+        NotificationInbox inbox = inboxOf(username, false);
+        if (inbox != null) {
+            inbox.markReadThrough(throughId);
+        }
+    }
+
+    void restoreNotificationsExpired(String username, long[] notificationIds) {
+        NotificationInbox inbox = inboxOf(username, false);
+        if (inbox != null) {
+            for (long id : notificationIds) {
+                inbox.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Adds this controller's whole state to a snapshot: users, slots, appointments, notifications and the
+     * appointment ID counter. Anything still only in the startup snapshot is loaded first.
+     * Only called on a private copy rebuilt by the journal, so nothing changes underneath it.
+     */
+    void exportState(SnapshotImage.Writer snapshot) throws IOException {
+        for (String staffUsername : new ArrayList<>(unloadedStaff)) {
+            ensureStaffLoaded(staffUsername);
+        }
+        for (User user : users.values()) {
+            snapshot.user(user);
+            NotificationInbox inbox = inboxOf(user.getUsername(), false);
+            if (inbox != null) {
+                for (Notification notification : inbox.getAll()) {
+                    snapshot.notification(user.getUsername(), notification, inbox.isRead(notification));
+                }
+            }
+        }
+        for (Map.Entry<String, StaffSchedule> entry : professorSchedules.entrySet()) {
+            for (Map.Entry<LocalDate, NavigableMap<LocalTime, TimeSlot>> day : entry.getValue().datesFrom(LocalDate.MIN).entrySet()) {
+                for (TimeSlot slot : day.getValue().values()) {
+                    snapshot.slot(entry.getKey(), day.getKey(), slot);
+                }
+            }
+        }
+        for (Appointment appointment : appointments.values()) {
+            QueueManager queue = queues.get(appointment.getProfessorOrCounselor().getUsername());
+            TimeSlot slot = appointment.getTimeSlot();
+            snapshot.appointment(appointment, queue != null && queue.contains(appointment),
+                    slot != null && slot.getAppointment() == appointment);
+        }
+        snapshot.nextAppointmentId(nextAppointmentId.get());
+    }
+
     /**
      * Retrieves a specific Appointment by its unique ID.
      * Performs a direct lookup in the main appointments map.
@@ -1239,6 +2260,7 @@ public Map<String, Object> getStaffAnalytics(User staffUser) {
              System.err.println("WARN: getAppointmentById called with invalid ID: " + appointmentId);
              return null;
         }
+        ensureAppointmentLoaded(appointmentId);
         Appointment app = appointments.get(appointmentId);
         if (app == null) {
              System.out.println("INFO: getAppointmentById did not find an appointment with ID: " + appointmentId);
@@ -1246,4 +2268,4 @@ public Map<String, Object> getStaffAnalytics(User staffUser) {
         return app;
     }
 
-} // End of ConsultationController class
\ No newline at end of file
+} // End of ConsultationController class
@@ -0,0 +1,47 @@
+package com.consultation.controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Storage backend of a {@link ConsultationController}.
+ * <p>
+ * The controller always serves requests from its own objects: schedules, queues and the per-user
+ * indexes are shaped around its staff locks and compare-and-set bookings, so they stay in memory
+ * whatever the backend. A store decides which state the controller starts from
+ * ({@link #load(ConsultationController)}) and what happens to each change after the controller has
+ * made it. Changes are reported through one repository interface per kind of data.
+ * <p>
+ * Changes to one staff member's schedule, queue and appointments are reported in the order they
+ * were made. Many of these calls come while the controller holds a staff lock, so they must not block
+ * on I/O. A backend that writes to disk should queue the change and make it durable in
+ * {@link #awaitDurable()}, which the controller calls once it holds no staff lock.
+ * <p>
+ * Shipped backends: {@link InMemoryStore} (nothing is kept after the application exits) and
+ * {@link JournalStore} (an embedded, in-process write-ahead log with snapshots in a local directory).
+ */
+public interface ConsultationStore extends UserRepository, ScheduleRepository, AppointmentRepository,
+        QueueRepository, NotificationRepository, Closeable {
+
+    /**
+     * Restores the stored state into a newly created, empty controller. Called once, by the controller's
+     * constructor, before the controller is used and before any change is reported.
+     *
+     * @throws IOException if the stored state cannot be read.
+     */
+    void load(ConsultationController controller) throws IOException;
+
+    /** Number of stored records (or rows) that {@link #load(ConsultationController)} restored; 0 if none. */
+    int getRestoredRecordCount();
+
+    /** Blocks until every change the calling thread has reported is durable. Returns at once if there is nothing to wait for. */
+    void awaitDurable();
+
+    /**
+     * Shrinks the stored history (e.g. by writing a snapshot) if the backend supports it.
+     *
+     * @return true if anything was compacted.
+     * @throws IOException if compaction failed.
+     */
+    boolean compact() throws IOException;
+}
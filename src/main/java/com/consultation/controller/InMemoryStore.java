@@ -0,0 +1,97 @@
+package com.consultation.controller;
+
+import com.consultation.model.Appointment;
+import com.consultation.model.Notification;
+import com.consultation.model.TimeSlot;
+import com.consultation.model.User;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * A store that keeps nothing beyond the controller's own in-memory objects: every controller starts
+ * empty and all data is lost when the application exits. Reporting a change costs nothing.
+ */
+public final class InMemoryStore implements ConsultationStore {
+
+    @Override
+    public void userRegistered(User user) {
+    }
+
+    @Override
+    public void subjectAdded(String username, String subject) {
+    }
+
+    @Override
+    public void slotAdded(String staffUsername, LocalDate date, TimeSlot slot) {
+    }
+
+    @Override
+    public void slotRemoved(String staffUsername, LocalDate date, LocalTime startTime) {
+    }
+
+    @Override
+    public void slotAvailabilityChanged(String staffUsername, LocalDate date, LocalTime startTime, boolean available) {
+    }
+
+    @Override
+    public void appointmentBooked(Appointment appointment, LocalDate slotDate, LocalTime slotStart) {
+    }
+
+    @Override
+    public void appointmentCancelled(int appointmentId) {
+    }
+
+    @Override
+    public void appointmentStatusChanged(int appointmentId, String status, boolean leftQueue) {
+    }
+
+    @Override
+    public void prioritySet(int appointmentId, boolean priority) {
+    }
+
+    @Override
+    public void prioritySwapped(List<Appointment> shiftGroup) {
+    }
+
+    @Override
+    public void notificationSent(String username, Notification notification) {
+    }
+
+    @Override
+    public void notificationRead(String username, long notificationId) {
+    }
+
+    @Override
+    public void allNotificationsRead(String username, long throughNotificationId) {
+    }
+
+    @Override
+    public void notificationsExpired(String username, long[] notificationIds) {
+    }
+
+    @Override
+    public void load(ConsultationController controller) {
+        // Nothing stored
+    }
+
+    @Override
+    public int getRestoredRecordCount() {
+        return 0;
+    }
+
+    @Override
+    public void awaitDurable() {
+        // Nothing to wait for
+    }
+
+    @Override
+    public boolean compact() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,567 @@
+package com.consultation.controller;
+
+import com.consultation.model.Appointment;
+import com.consultation.model.Notification;
+import com.consultation.model.NotificationContent;
+import com.consultation.model.NotificationTemplate;
+import com.consultation.model.TimeSlot;
+import com.consultation.model.User;
+import com.consultation.persistence.EventLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The persistent {@link ConsultationStore}: an embedded, in-process store in a local directory.
+ * It records every state change the controller makes as a compact binary record in an {@link EventLog},
+ * and feeds those records back into the controller on startup. Reporting a change only queues it;
+ * the log's writer thread makes whole batches durable with one sync (see {@link #awaitDurable()}).
+ * <p>
+ * Records describe outcomes, not requests: a booking records the slot it actually got, default slots
+ * are recorded one by one, and so on. Replaying them therefore rebuilds exactly the same state,
+ * no matter what day it is when the application restarts.
+ * <p>
+ * The journal lives in a directory of numbered files:
+ * <ul>
+ *   <li>{@code journal-N.log}: log segments. Only the highest-numbered one is appended to.</li>
+ *   <li>{@code snapshot-N.snap}: the full state as of the start of segment N, in the fixed-width
+ *       binary layout of {@link SnapshotImage}.</li>
+ * </ul>
+ * Startup maps the newest snapshot (the controller creates objects from it lazily) and replays only
+ * the segments from its number onwards.
+ * <p>
+ * Compaction runs on a background thread whenever the active segment has grown past a threshold:
+ * the log rolls over to a new segment (appenders never wait for this), the closed segments are
+ * replayed on top of the previous snapshot into a private, in-memory controller, and that copy is
+ * written out as the next snapshot. Live state is never read, so writers are never stopped and the
+ * snapshot is exactly what a restart would have rebuilt. Once the new snapshot is safely renamed into
+ * place, the segments and snapshot it covers are deleted.
+ */
+public final class JournalStore implements ConsultationStore {
+
+    // Record types. These are stored on disk: never renumber or reuse them.
+    private static final byte USER_REGISTERED = 1;
+    private static final byte SLOT_ADDED = 2;
+    private static final byte SLOT_REMOVED = 3;
+    private static final byte SLOT_AVAILABILITY = 4;
+    private static final byte APPOINTMENT_BOOKED = 5;
+    private static final byte APPOINTMENT_CANCELLED = 6;
+    private static final byte APPOINTMENT_STATUS = 7;
+    private static final byte PRIORITY_SET = 8;
+    private static final byte PRIORITY_SWAP = 9;
+    private static final byte NOTIFICATION_SENT = 10;
+    private static final byte NOTIFICATION_READ = 11;
+    private static final byte NOTIFICATIONS_ALL_READ = 12; // Up to a notification ID, not whatever the inbox holds on replay
+    private static final byte SUBJECT_ADDED = 13;
+    private static final byte TEMPLATED_NOTIFICATION_SENT = 14; // Template code and arguments instead of the text
+    private static final byte NOTIFICATIONS_EXPIRED = 15;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final long COMPACTION_THRESHOLD_BYTES = 4L * 1024 * 1024; // Active segment size that triggers a snapshot
+    private static final long COMPACTION_CHECK_SECONDS = 60;
+
+    private final Path directory;
+
+    // Set once by load()
+    private EventLog log;
+    private int replayedRecords;
+    private ScheduledExecutorService compactor;
+
+    private long activeSegment; // guarded by this
+    private long snapshotNumber; // guarded by this; 0 if there is no snapshot yet
+
+    /** A store that keeps its journal in the given directory (created on load if missing). */
+    public JournalStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the journal directory, loads the newest snapshot and replays the log segments after it
+     * into the controller before returning.
+     */
+    @Override
+    public synchronized void load(ConsultationController target) throws IOException {
+        if (log != null) {
+            throw new IllegalStateException("JournalStore already loaded: " + directory);
+        }
+        Files.createDirectories(directory);
+        deleteFiles(directory, "*" + TEMP_SUFFIX); // Snapshots that were never completed
+
+        NavigableMap<Long, Path> snapshots = numberedFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long snapshot = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        int replayed = 0;
+        if (snapshot > 0) {
+            SnapshotImage image = SnapshotImage.map(snapshots.get(snapshot));
+            target.restoreSnapshot(image);
+            replayed += image.getRowCount();
+        }
+
+        // Only the last segment can have a torn tail; the others were synced in full before each roll-over
+        NavigableMap<Long, Path> segments = numberedFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).tailMap(snapshot, true);
+        long active = segments.isEmpty() ? Math.max(snapshot, 1) : segments.lastKey();
+        for (Path closed : segments.headMap(active, false).values()) {
+            replayed += EventLog.read(closed, in -> replay(in, target));
+        }
+        log = EventLog.open(segmentFile(directory, active), in -> replay(in, target));
+        replayedRecords = replayed + log.getReplayedRecordCount();
+        activeSegment = active;
+        snapshotNumber = snapshot;
+        deleteCoveredFiles(snapshot); // Left over if the last compaction stopped before cleaning up
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfDue, COMPACTION_CHECK_SECONDS, COMPACTION_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Number of snapshot rows and log records restored when the journal was loaded. */
+    @Override
+    public int getRestoredRecordCount() {
+        return replayedRecords;
+    }
+
+    // --- Snapshots and compaction ---
+
+    private void compactIfDue() {
+        try {
+            if (log.getSize() >= COMPACTION_THRESHOLD_BYTES) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("JournalStore: Compaction failed, will retry later: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot covering everything journaled so far and deletes the log segments it replaces.
+     * Appenders keep running throughout; only concurrent compactions are serialized.
+     *
+     * @return always true.
+     */
+    @Override
+    public synchronized boolean compact() throws IOException {
+        long closedUpTo = activeSegment;
+        long next = closedUpTo + 1;
+        log.rollOver(segmentFile(directory, next));
+        activeSegment = next;
+
+        // Rebuild the state as of the roll-over from files only, so live objects are never touched.
+        // The copy is closed afterwards so its pipeline and event threads (and the mapped snapshot they keep reachable) go away.
+        Path snapshot = snapshotFile(directory, next);
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + TEMP_SUFFIX);
+        ConsultationController copy = new ConsultationController();
+        try {
+            if (snapshotNumber > 0) {
+                copy.restoreSnapshot(SnapshotImage.map(snapshotFile(directory, snapshotNumber)));
+            }
+            for (Path closed : numberedFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).subMap(snapshotNumber, true, closedUpTo, true).values()) {
+                EventLog.read(closed, in -> replay(in, copy));
+            }
+
+            Files.deleteIfExists(temp);
+            SnapshotImage.Writer writer = new SnapshotImage.Writer();
+            copy.exportState(writer);
+            writer.writeTo(temp); // Forced to disk before the rename makes it visible
+        } finally {
+            copy.close();
+        }
+        Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        snapshotNumber = next;
+        deleteCoveredFiles(next);
+        return true;
+    }
+
+    // Deletes segments and snapshots older than the given snapshot number. A file that can't be deleted yet
+    // (e.g. an older snapshot that is still mapped, on platforms that lock mapped files) is retried next time.
+    private void deleteCoveredFiles(long snapshot) throws IOException {
+        List<Path> covered = new ArrayList<>(numberedFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).headMap(snapshot, false).values());
+        covered.addAll(numberedFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(snapshot, false).values());
+        for (Path old : covered) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                System.err.println("JournalStore: Could not delete " + old + " yet: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Path segmentFile(Path directory, long number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static Path snapshotFile(Path directory, long number) {
+        return directory.resolve(String.format("%s%06d%s", SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+    }
+
+    // number -> file for every "<prefix><number><suffix>" in the directory
+    private static NavigableMap<Long, Path> numberedFiles(Path directory, String prefix, String suffix) throws IOException {
+        NavigableMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), file);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return files;
+    }
+
+    private static void deleteFiles(Path directory, String glob) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /** Blocks until this thread's records are on disk (see {@link EventLog#awaitDurable()}). */
+    @Override
+    public void awaitDurable() {
+        log.awaitDurable();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES); // Let a running compaction finish
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // --- Recording ---
+
+    private void append(EventLog.RecordWriter record) {
+        if (log == null) {
+            throw new IllegalStateException("JournalStore used before load(): " + directory);
+        }
+        log.append(record);
+    }
+
+    @Override
+    public void userRegistered(User user) {
+        List<String> subjects = new ArrayList<>(user.getSubjects());
+        append(out -> {
+            out.writeByte(USER_REGISTERED);
+            out.writeUTF(user.getUsername());
+            out.writeUTF(user.getPassword());
+            out.writeUTF(user.getRole());
+            writeNullable(out, user.getName());
+            writeNullable(out, user.getEmail());
+            out.writeInt(subjects.size());
+            for (String subject : subjects) {
+                out.writeUTF(subject);
+            }
+        });
+    }
+
+    @Override
+    public void subjectAdded(String username, String subject) {
+        append(out -> {
+            out.writeByte(SUBJECT_ADDED);
+            out.writeUTF(username);
+            out.writeUTF(subject);
+        });
+    }
+
+    @Override
+    public void slotAdded(String staffUsername, LocalDate date, TimeSlot slot) {
+        append(out -> {
+            out.writeByte(SLOT_ADDED);
+            out.writeUTF(staffUsername);
+            writeDate(out, date);
+            writeTime(out, slot.getStartTime());
+            writeTime(out, slot.getEndTime());
+        });
+    }
+
+    @Override
+    public void slotRemoved(String staffUsername, LocalDate date, LocalTime startTime) {
+        append(out -> {
+            out.writeByte(SLOT_REMOVED);
+            out.writeUTF(staffUsername);
+            writeDate(out, date);
+            writeTime(out, startTime);
+        });
+    }
+
+    @Override
+    public void slotAvailabilityChanged(String staffUsername, LocalDate date, LocalTime startTime, boolean available) {
+        append(out -> {
+            out.writeByte(SLOT_AVAILABILITY);
+            out.writeUTF(staffUsername);
+            writeDate(out, date);
+            writeTime(out, startTime);
+            out.writeBoolean(available);
+        });
+    }
+
+    // The appointment's time is always its slot's start, so only the slot is recorded
+    @Override
+    public void appointmentBooked(Appointment appointment, LocalDate slotDate, LocalTime slotStart) {
+        int id = appointment.getId();
+        String student = appointment.getStudent().getUsername();
+        String staff = appointment.getProfessorOrCounselor().getUsername();
+        String subject = appointment.getSubject();
+        int duration = appointment.getEstimatedDuration();
+        append(out -> {
+            out.writeByte(APPOINTMENT_BOOKED);
+            out.writeInt(id);
+            out.writeUTF(student);
+            out.writeUTF(staff);
+            writeNullable(out, subject);
+            out.writeInt(duration);
+            writeDate(out, slotDate);
+            writeTime(out, slotStart);
+        });
+    }
+
+    @Override
+    public void appointmentCancelled(int appointmentId) {
+        append(out -> {
+            out.writeByte(APPOINTMENT_CANCELLED);
+            out.writeInt(appointmentId);
+        });
+    }
+
+    @Override
+    public void appointmentStatusChanged(int appointmentId, String status, boolean leftQueue) {
+        append(out -> {
+            out.writeByte(APPOINTMENT_STATUS);
+            out.writeInt(appointmentId);
+            out.writeUTF(status);
+            out.writeBoolean(leftQueue);
+        });
+    }
+
+    @Override
+    public void prioritySet(int appointmentId, boolean priority) {
+        append(out -> {
+            out.writeByte(PRIORITY_SET);
+            out.writeInt(appointmentId);
+            out.writeBoolean(priority);
+        });
+    }
+
+    @Override
+    public void prioritySwapped(List<Appointment> shiftGroup) {
+        int[] ids = shiftGroup.stream().mapToInt(Appointment::getId).toArray();
+        append(out -> {
+            out.writeByte(PRIORITY_SWAP);
+            out.writeInt(ids.length);
+            for (int id : ids) {
+                out.writeInt(id);
+            }
+        });
+    }
+
+    @Override
+    public void notificationSent(String username, Notification notification) {
+        NotificationContent content = notification.getContent();
+        if (content.getTemplate() == null) {
+            append(out -> {
+                out.writeByte(NOTIFICATION_SENT);
+                out.writeUTF(username);
+                out.writeLong(notification.getId());
+                writeDateTime(out, notification.getTimestamp());
+                out.writeUTF(content.getPlainText());
+            });
+            return;
+        }
+        append(out -> { // Logged without rendering the text
+            out.writeByte(TEMPLATED_NOTIFICATION_SENT);
+            out.writeUTF(username);
+            out.writeLong(notification.getId());
+            writeDateTime(out, notification.getTimestamp());
+            out.writeShort(content.getTemplate().getCode());
+            writeNullable(out, content.getStaffName());
+            writeNullable(out, content.getStudentName());
+            writeNullable(out, content.getSubject());
+            out.writeBoolean(content.getTime() != null);
+            if (content.getTime() != null) {
+                writeDateTime(out, content.getTime());
+            }
+        });
+    }
+
+    @Override
+    public void notificationRead(String username, long notificationId) {
+        append(out -> {
+            out.writeByte(NOTIFICATION_READ);
+            out.writeUTF(username);
+            out.writeLong(notificationId);
+        });
+    }
+
+    @Override
+    public void allNotificationsRead(String username, long throughNotificationId) {
+        append(out -> {
+            out.writeByte(NOTIFICATIONS_ALL_READ);
+            out.writeUTF(username);
+            out.writeLong(throughNotificationId);
+        });
+    }
+
+    @Override
+    public void notificationsExpired(String username, long[] notificationIds) {
+        append(out -> {
+            out.writeByte(NOTIFICATIONS_EXPIRED);
+            out.writeUTF(username);
+            out.writeInt(notificationIds.length);
+            for (long id : notificationIds) {
+                out.writeLong(id);
+            }
+        });
+    }
+
+    // --- Replay ---
+
+    private static void replay(DataInputStream in, ConsultationController target) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case USER_REGISTERED: {
+                User user = new User(in.readUTF(), in.readUTF(), in.readUTF(), readNullable(in), readNullable(in));
+                int subjectCount = in.readInt();
+                for (int i = 0; i < subjectCount; i++) {
+                    user.addSubject(in.readUTF());
+                }
+                target.restoreUser(user);
+                break;
+            }
+            case SUBJECT_ADDED:
+                target.restoreSubject(in.readUTF(), in.readUTF());
+                break;
+            case SLOT_ADDED:
+                target.restoreSlot(in.readUTF(), readDate(in), readTime(in), readTime(in));
+                break;
+            case SLOT_REMOVED:
+                target.restoreSlotRemoval(in.readUTF(), readDate(in), readTime(in));
+                break;
+            case SLOT_AVAILABILITY:
+                target.restoreSlotAvailability(in.readUTF(), readDate(in), readTime(in), in.readBoolean());
+                break;
+            case APPOINTMENT_BOOKED:
+                target.restoreBooking(in.readInt(), in.readUTF(), in.readUTF(), readNullable(in), in.readInt(), readDate(in), readTime(in));
+                break;
+            case APPOINTMENT_CANCELLED:
+                target.restoreCancellation(in.readInt());
+                break;
+            case APPOINTMENT_STATUS:
+                target.restoreStatus(in.readInt(), in.readUTF(), in.readBoolean());
+                break;
+            case PRIORITY_SET:
+                target.restorePriority(in.readInt(), in.readBoolean());
+                break;
+            case PRIORITY_SWAP: {
+                int count = in.readInt();
+                int[] ids = new int[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = in.readInt();
+                }
+                target.restorePrioritySwap(ids);
+                break;
+            }
+            case NOTIFICATION_SENT: {
+                String username = in.readUTF();
+                target.restoreNotification(username, new Notification(in.readLong(), readDateTime(in), in.readUTF(), false));
+                break;
+            }
+            case TEMPLATED_NOTIFICATION_SENT: {
+                String username = in.readUTF();
+                long id = in.readLong();
+                LocalDateTime timestamp = readDateTime(in);
+                NotificationTemplate template = NotificationTemplate.fromCode(in.readShort());
+                NotificationContent content = NotificationContent.of(template, readNullable(in), readNullable(in), readNullable(in),
+                        in.readBoolean() ? readDateTime(in) : null);
+                target.restoreNotification(username, new Notification(id, timestamp, content, false));
+                break;
+            }
+            case NOTIFICATION_READ:
+                target.restoreNotificationRead(in.readUTF(), in.readLong());
+                break;
+            case NOTIFICATIONS_ALL_READ:
+                target.restoreAllNotificationsRead(in.readUTF(), in.readLong());
+                break;
+            case NOTIFICATIONS_EXPIRED: {
+                String username = in.readUTF();
+                long[] ids = new long[in.readInt()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = in.readLong();
+                }
+                target.restoreNotificationsExpired(username, ids);
+                break;
+            }
+            default:
+                throw new IOException("Unknown event log record type: " + type);
+        }
+    }
+
+    // --- Encoding helpers ---
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeInt((int) date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        return LocalDate.ofEpochDay(in.readInt());
+    }
+
+    private static void writeTime(DataOutputStream out, LocalTime time) throws IOException {
+        out.writeLong(time.toNanoOfDay());
+    }
+
+    private static LocalTime readTime(DataInputStream in) throws IOException {
+        return LocalTime.ofNanoOfDay(in.readLong());
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        writeDate(out, dateTime.toLocalDate());
+        writeTime(out, dateTime.toLocalTime());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return LocalDateTime.of(readDate(in), readTime(in));
+    }
+}
@@ -0,0 +1,297 @@
+package com.consultation.controller;
+
+import com.consultation.model.Notification;
+import com.consultation.model.NotificationContent;
+import com.consultation.model.NotificationTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An append-only, compressed file of notifications that were moved out of users' inboxes.
+ * <p>
+ * File layout: an 8-byte header (magic, format version), then one frame per {@link #append(Map)} call:
+ * {@code [int indexLength][int payloadLength][int crc32(index + payload)][index][payload]}. The index
+ * lists the usernames in the frame and is not compressed; the payload holds the notifications, grouped
+ * by user, gzip-compressed. Templated notifications are stored as their template and arguments, like in
+ * the journal, so archiving never renders text.
+ * <p>
+ * Opening the archive reads only the frame indexes, so it knows which frames hold each user's
+ * notifications; a query decompresses just those frames. A torn tail (e.g. from a crash mid-append)
+ * is truncated away on open. Thread-safe.
+ */
+final class NotificationArchive implements Closeable {
+
+    private static final int MAGIC = 0x43514E41; // "CQNA"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 12; // index length, payload length, crc
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<String, List<Long>> framesByUser = new HashMap<>(); // username -> frame offsets, oldest first
+    private long archivedCount; // Notifications appended since the archive was opened
+
+    private NotificationArchive(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens (or creates) an archive file and indexes its frames.
+     *
+     * @param file The archive file. Parent directories are created if needed.
+     * @throws IOException if the file cannot be read or written, or is not a notification archive.
+     */
+    static NotificationArchive open(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            NotificationArchive archive = new NotificationArchive(file, channel);
+            if (channel.size() < HEADER_BYTES) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip(), 0);
+                channel.force(true);
+            } else {
+                ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not a notification archive (or unsupported version): " + file);
+                }
+                archive.indexFrames();
+            }
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends one frame with the given notifications and forces it to disk before returning.
+     *
+     * @param byUser username -> notifications to archive, with their read state.
+     */
+    synchronized void append(Map<String, List<Archived>> byUser) throws IOException {
+        if (byUser.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        indexOut.writeInt(byUser.size());
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(payload))) {
+            out.writeInt(byUser.size());
+            for (Map.Entry<String, List<Archived>> user : byUser.entrySet()) {
+                indexOut.writeUTF(user.getKey());
+                out.writeUTF(user.getKey());
+                out.writeInt(user.getValue().size());
+                for (Archived archived : user.getValue()) {
+                    writeNotification(out, archived);
+                }
+                count += user.getValue().size();
+            }
+        }
+        byte[] indexBytes = index.toByteArray();
+        byte[] payloadBytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(indexBytes);
+        crc.update(payloadBytes);
+
+        long offset = channel.size();
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES + indexBytes.length + payloadBytes.length);
+        frame.putInt(indexBytes.length).putInt(payloadBytes.length).putInt((int) crc.getValue()).put(indexBytes).put(payloadBytes).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame, offset + frame.position());
+        }
+        channel.force(false);
+        for (String username : byUser.keySet()) {
+            framesByUser.computeIfAbsent(username, k -> new ArrayList<>()).add(offset);
+        }
+        archivedCount += count;
+    }
+
+    /**
+     * Reads back a user's archived notifications, oldest first (empty if there are none).
+     */
+    synchronized List<Notification> query(String username) throws IOException {
+        List<Long> frames = framesByUser.get(username);
+        if (frames == null) {
+            return Collections.emptyList();
+        }
+        List<Notification> found = new ArrayList<>();
+        for (long offset : frames) {
+            ByteBuffer frame = readFully(channel, offset, FRAME_BYTES);
+            int indexLength = frame.getInt();
+            int payloadLength = frame.getInt();
+            ByteBuffer payload = readFully(channel, offset + FRAME_BYTES + indexLength, payloadLength);
+            try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                    new ByteArrayInputStream(payload.array(), 0, payloadLength)))) {
+                int users = in.readInt();
+                for (int u = 0; u < users; u++) {
+                    String frameUser = in.readUTF();
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        Archived archived = readNotification(in);
+                        if (frameUser.equals(username)) {
+                            found.add(archived.notification);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Number of notifications appended since the archive was opened. */
+    synchronized long getArchivedCount() {
+        return archivedCount;
+    }
+
+    /** Size of the archive file in bytes. */
+    synchronized long getSize() throws IOException {
+        return channel.size();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /** A notification on its way to the archive, with the read state it had in its inbox. */
+    static final class Archived {
+        final Notification notification;
+        final boolean read;
+
+        Archived(Notification notification, boolean read) {
+            this.notification = notification;
+            this.read = read;
+        }
+    }
+
+    // --- Reading and writing ---
+
+    // Reads every frame index; truncates the file after the last intact frame
+    private void indexFrames() throws IOException {
+        long size = channel.size();
+        long offset = HEADER_BYTES;
+        while (offset + FRAME_BYTES <= size) {
+            ByteBuffer frame = readFully(channel, offset, FRAME_BYTES);
+            int indexLength = frame.getInt();
+            int payloadLength = frame.getInt();
+            int expectedCrc = frame.getInt();
+            if (indexLength < 4 || payloadLength < 0 || offset + FRAME_BYTES + indexLength + payloadLength > size) {
+                break;
+            }
+            ByteBuffer body = readFully(channel, offset + FRAME_BYTES, indexLength + payloadLength);
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, indexLength + payloadLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                break;
+            }
+            DataInputStream index = new DataInputStream(new ByteArrayInputStream(body.array(), 0, indexLength));
+            int users = index.readInt();
+            for (int i = 0; i < users; i++) {
+                framesByUser.computeIfAbsent(index.readUTF(), k -> new ArrayList<>()).add(offset);
+            }
+            offset += FRAME_BYTES + indexLength + payloadLength;
+        }
+        if (offset < size) {
+            System.err.println("NotificationArchive: Truncating " + (size - offset) + " byte(s) of torn tail in " + file);
+            channel.truncate(offset);
+            channel.force(true);
+        }
+    }
+
+    private static void writeNotification(DataOutputStream out, Archived archived) throws IOException {
+        Notification notification = archived.notification;
+        NotificationContent content = notification.getContent();
+        out.writeLong(notification.getId());
+        writeDateTime(out, notification.getTimestamp());
+        out.writeBoolean(archived.read);
+        if (content.getTemplate() == null) {
+            out.writeShort(0);
+            out.writeUTF(content.getPlainText());
+            return;
+        }
+        out.writeShort(content.getTemplate().getCode());
+        writeNullable(out, content.getStaffName());
+        writeNullable(out, content.getStudentName());
+        writeNullable(out, content.getSubject());
+        out.writeBoolean(content.getTime() != null);
+        if (content.getTime() != null) {
+            writeDateTime(out, content.getTime());
+        }
+    }
+
+    private static Archived readNotification(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        LocalDateTime timestamp = readDateTime(in);
+        boolean read = in.readBoolean();
+        int code = in.readShort();
+        NotificationContent content;
+        if (code == 0) {
+            content = NotificationContent.plain(in.readUTF());
+        } else {
+            content = NotificationContent.of(NotificationTemplate.fromCode(code), readNullable(in), readNullable(in), readNullable(in),
+                    in.readBoolean() ? readDateTime(in) : null);
+        }
+        return new Archived(new Notification(id, timestamp, content, read), read);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC)); // Just an encoding of the local date-time
+        out.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of notification archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
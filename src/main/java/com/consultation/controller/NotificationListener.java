@@ -0,0 +1,22 @@
+package com.consultation.controller;
+
+import com.consultation.model.Notification;
+
+import java.util.List;
+
+/**
+ * Receives a user's new notifications as they are delivered
+ * (see {@link ConsultationController#subscribeNotifications(String, NotificationListener)}).
+ */
+@FunctionalInterface
+public interface NotificationListener {
+
+    /**
+     * Called with each batch of notifications that just reached the user's inbox, oldest first.
+     * Batches arrive in delivery order, each notification exactly once.
+     *
+     * @param username      The user the notifications are for.
+     * @param notifications The new notifications, oldest first (never empty).
+     */
+    void notificationsDelivered(String username, List<Notification> notifications);
+}
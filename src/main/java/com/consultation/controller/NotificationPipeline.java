@@ -0,0 +1,193 @@
+package com.consultation.controller;
+
+import com.consultation.model.NotificationContent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves notification delivery off the request path.
+ * <p>
+ * Any number of threads {@link #publish(String, NotificationContent)} a message into a bounded queue; that only
+ * records the username, the message and the current time. A single consumer thread drains the queue in
+ * batches and hands each batch to the {@link Deliverer}, which creates the notifications, puts them in
+ * the users' inboxes and reports them to the store. When the queue is full, publishers wait for the
+ * consumer (notifications are never dropped); the consumer takes no staff locks, so this is safe even
+ * while a publisher holds one.
+ * <p>
+ * Delivery is asynchronous: a message may not be in its inbox yet when {@code publish} returns.
+ * {@link #flush()} waits until everything published before the call has been delivered.
+ * The consumer thread is only started by the first publish, so controllers that never send
+ * notifications (e.g. the private copies built during compaction) don't get one. Thread-safe.
+ */
+final class NotificationPipeline {
+
+    private static final int CAPACITY = 4096;
+    private static final int MAX_BATCH = 256;
+
+    /** Delivers a batch of published messages, oldest first. Called on the consumer thread only. */
+    @FunctionalInterface
+    interface Deliverer {
+        void deliver(List<Pending> batch);
+    }
+
+    /** A published message that has not been delivered yet. */
+    static final class Pending {
+        final String username;
+        final NotificationContent content;
+        final long publishedMillis; // Epoch millis; cheaper to take on the request path than a LocalDateTime
+
+        Pending(String username, NotificationContent content, long publishedMillis) {
+            this.username = username;
+            this.content = content;
+            this.publishedMillis = publishedMillis;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final Deliverer deliverer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchDelivered = lock.newCondition(); // Signalled for threads in flush()
+    private long published;   // guarded by lock; messages accepted so far
+    private long delivered;   // guarded by lock; messages delivered so far (in queue order)
+    private Thread consumer;  // guarded by lock; null until the first publish
+    private boolean closed;   // guarded by lock
+
+    NotificationPipeline(Deliverer deliverer) {
+        this.deliverer = deliverer;
+    }
+
+    /**
+     * Queues a message for delivery, waiting for room if the queue is full.
+     * After {@link #close()} the message is delivered on the calling thread instead.
+     */
+    void publish(String username, NotificationContent content) {
+        Pending pending = new Pending(username, content, System.currentTimeMillis());
+        boolean inline;
+        lock.lock();
+        try {
+            inline = closed;
+            if (!inline) {
+                if (consumer == null) {
+                    consumer = new Thread(this::consumeLoop, "notification-delivery");
+                    consumer.setDaemon(true);
+                    consumer.start();
+                }
+                published++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (inline) {
+            deliverer.deliver(List.of(pending));
+            return;
+        }
+        // Counted before it is queued, so a concurrent flush() may also wait for this one; never less
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(pending);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // Never drop a notification; restore the flag once it is queued
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until every message published before this call has been delivered (for a persistent
+     * store: is in its inbox and durable). Returns at once if nothing is outstanding.
+     */
+    void flush() {
+        lock.lock();
+        try {
+            long target = published;
+            boolean interrupted = false;
+            while (delivered < target && consumer != null && consumer.isAlive()) {
+                try {
+                    batchDelivered.await(100, TimeUnit.MILLISECONDS); // Rechecks that the consumer is still running
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of messages published but not delivered yet. */
+    long getBacklog() {
+        lock.lock();
+        try {
+            return published - delivered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Delivers everything still queued and stops the consumer thread. Later publishes deliver inline. */
+    void close() {
+        flush();
+        Thread stopping;
+        lock.lock();
+        try {
+            closed = true;
+            stopping = consumer;
+        } finally {
+            lock.unlock();
+        }
+        if (stopping != null) {
+            stopping.interrupt();
+            try {
+                stopping.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest); // Published while the consumer was stopping
+        if (!rest.isEmpty()) {
+            deliverer.deliver(rest);
+        }
+    }
+
+    private void consumeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if (queue.isEmpty()) {
+                    return; // close(): everything has been delivered
+                }
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                deliverer.deliver(batch);
+            } catch (RuntimeException e) {
+                System.err.println("NotificationPipeline: Failed to deliver " + batch.size() + " notification(s): " + e.getMessage());
+            }
+            lock.lock();
+            try {
+                delivered += batch.size(); // Counted even on failure, so flush() never hangs
+                batchDelivered.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batch.clear();
+        }
+    }
+}
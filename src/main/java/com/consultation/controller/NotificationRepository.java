@@ -0,0 +1,16 @@
+package com.consultation.controller;
+
+import com.consultation.model.Notification;
+
+/** Changes to users' notifications. Part of the {@link ConsultationStore} SPI. */
+public interface NotificationRepository {
+    void notificationSent(String username, Notification notification);
+
+    void notificationRead(String username, long notificationId);
+
+    /** Every notification of the user up to and including the given ID was marked read ("mark all"). */
+    void allNotificationsRead(String username, long throughNotificationId);
+
+    /** The notifications were moved out of the user's inbox (e.g. into the notification archive). */
+    void notificationsExpired(String username, long[] notificationIds);
+}
@@ -0,0 +1,13 @@
+package com.consultation.controller;
+
+import com.consultation.model.Appointment;
+
+import java.util.List;
+
+/** Changes to queue order. Part of the {@link ConsultationStore} SPI. */
+public interface QueueRepository {
+    void prioritySet(int appointmentId, boolean priority);
+
+    /** A priority swap over this shift group (time order; the last one became priority) was committed. */
+    void prioritySwapped(List<Appointment> shiftGroup);
+}
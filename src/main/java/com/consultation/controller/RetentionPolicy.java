@@ -0,0 +1,66 @@
+package com.consultation.controller;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Limits on how many notifications each user keeps in memory. Notifications that fall outside the
+ * limits are moved to the notification archive (see
+ * {@link ConsultationController#enableNotificationRetention(RetentionPolicy, java.nio.file.Path)}).
+ * Immutable.
+ */
+public final class RetentionPolicy {
+
+    private final int maxPerUser;
+    private final Duration maxAge;
+    private final Duration readRetention;
+
+    /**
+     * Creates a policy. Each limit applies on its own; a notification is dropped when any of them says so.
+     *
+     * @param maxPerUser    Keep at most this many of each user's newest notifications (0 for no limit).
+     * @param maxAge        Drop notifications older than this, read or not (null for no limit).
+     * @param readRetention Drop read notifications older than this (null to keep read notifications).
+     * @throws IllegalArgumentException if a limit is negative.
+     */
+    public RetentionPolicy(int maxPerUser, Duration maxAge, Duration readRetention) {
+        if (maxPerUser < 0 || (maxAge != null && maxAge.isNegative()) || (readRetention != null && readRetention.isNegative())) {
+            throw new IllegalArgumentException("Retention limits cannot be negative");
+        }
+        this.maxPerUser = maxPerUser;
+        this.maxAge = maxAge;
+        this.readRetention = readRetention;
+    }
+
+    /** Keeps the newest {@code maxPerUser} notifications, at most {@code maxAgeDays} days, and read ones for {@code readDays} days. */
+    public static RetentionPolicy of(int maxPerUser, int maxAgeDays, int readDays) {
+        return new RetentionPolicy(maxPerUser, Duration.ofDays(maxAgeDays), Duration.ofDays(readDays));
+    }
+
+    public int getMaxPerUser() {
+        return maxPerUser;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public Duration getReadRetention() {
+        return readRetention;
+    }
+
+    /** Notifications created before this are dropped (null if there is no age limit). */
+    LocalDateTime removeBefore(LocalDateTime now) {
+        return (maxAge != null) ? now.minus(maxAge) : null;
+    }
+
+    /** Read notifications created before this are dropped (null if read ones are kept). */
+    LocalDateTime removeReadBefore(LocalDateTime now) {
+        return (readRetention != null) ? now.minus(readRetention) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy{maxPerUser=" + maxPerUser + ", maxAge=" + maxAge + ", readRetention=" + readRetention + '}';
+    }
+}
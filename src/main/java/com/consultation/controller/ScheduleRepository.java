@@ -0,0 +1,15 @@
+package com.consultation.controller;
+
+import com.consultation.model.TimeSlot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/** Changes to staff schedules (slots and their availability). Part of the {@link ConsultationStore} SPI. */
+public interface ScheduleRepository {
+    void slotAdded(String staffUsername, LocalDate date, TimeSlot slot);
+
+    void slotRemoved(String staffUsername, LocalDate date, LocalTime startTime);
+
+    void slotAvailabilityChanged(String staffUsername, LocalDate date, LocalTime startTime, boolean available);
+}
@@ -0,0 +1,599 @@
+package com.consultation.controller;
+
+import com.consultation.model.Appointment;
+import com.consultation.model.Notification;
+import com.consultation.model.NotificationContent;
+import com.consultation.model.NotificationTemplate;
+import com.consultation.model.TimeSlot;
+import com.consultation.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A full copy of the controller state in a compact binary file that is memory-mapped on startup.
+ * <p>
+ * Layout (big-endian): a fixed header, then one table per kind of object. Every table row has a fixed
+ * width, so row {@code i} is found by arithmetic instead of parsing everything before it. Strings are
+ * stored once in a string table and referenced by index (-1 for null). Slot and appointment times are
+ * stored as epoch minutes (minutes since 1970-01-01T00:00 local time), so slots must start and end on
+ * whole minutes; notification timestamps keep their full precision.
+ * <pre>
+ *   header          see the H_* offsets
+ *   strings         int offset per string, then [int byteLength][UTF-8 bytes] per string
+ *   refs            int[]: subject string indexes and per-student staff indexes
+ *   users           USER_BYTES per row
+ *   staff           STAFF_BYTES per row, with each staff member's slot and appointment row ranges
+ *   slots           SLOT_BYTES per row, grouped by staff member, in date/time order
+ *   appointments    APPOINTMENT_BYTES per row, grouped by staff member, in ID order
+ *   appointment IDs [int id][int appointment row] pairs in ID order (binary-searchable)
+ *   notifications   NOTIFICATION_BYTES per row, grouped by user, in delivery order
+ * </pre>
+ * Mapping the file costs one CRC pass and decoding the user table. Slots and appointments stay in the
+ * mapped file until the controller asks for a staff member's rows, and notifications until it asks for
+ * a user's inbox, so objects are only created for the parts of the state that are actually used.
+ * Instances are immutable and safe to read from several threads.
+ * <p>
+ * Notifications made from a {@link NotificationTemplate} are stored as the template code and its
+ * arguments (string references and the appointment time), so the text is never built just to save it.
+ */
+final class SnapshotImage {
+
+    private static final int MAGIC = 0x4351534E; // "CQSN"
+    private static final int VERSION = 3;
+
+    // Header field offsets
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_FILE_LENGTH = 8;
+    private static final int H_CRC = 12;            // CRC32 of everything after the header
+    private static final int H_NEXT_APPOINTMENT_ID = 16;
+    private static final int H_STRINGS = 20;        // count, offset
+    private static final int H_REFS = 28;
+    private static final int H_USERS = 36;
+    private static final int H_STAFF = 44;
+    private static final int H_SLOTS = 52;
+    private static final int H_APPOINTMENTS = 60;
+    private static final int H_APPOINTMENT_IDS = 68;
+    private static final int H_NOTIFICATIONS = 76;
+    private static final int H_MAX_NOTIFICATION_ID = 84; // long
+    private static final int HEADER_BYTES = 92;
+
+    // Row layouts: a list of int fields unless noted
+    private static final int USER_BYTES = 48;       // username, password, role, name, email, subjectRef, subjectCount,
+                                                    // staffRow, staffRef, staffCount, notificationRow, notificationCount
+    private static final int STAFF_BYTES = 20;      // userRow, slotRow, slotCount, appointmentRow, appointmentCount
+    private static final int SLOT_BYTES = 12;       // startEpochMinute, endEpochMinute, flags
+    private static final int APPOINTMENT_BYTES = 32; // id, studentRow, subject, duration, epochMinute, status, flags, staffRow
+    private static final int NOTIFICATION_BYTES = 48; // long id, long epochSecond, nano, message (or template code), flags,
+                                                      // staffName, studentName, subject, long time epochSecond
+
+    private static final int SLOT_MARKED_AVAILABLE = 1;
+    private static final int APPOINTMENT_PRIORITY = 1;
+    private static final int APPOINTMENT_IN_QUEUE = 2;
+    private static final int APPOINTMENT_HOLDS_SLOT = 4;
+    private static final int NOTIFICATION_READ = 1;
+    private static final int NOTIFICATION_TEMPLATED = 2;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    /** Receives one slot row. */
+    interface SlotVisitor {
+        void slot(LocalDate date, LocalTime start, LocalTime end, boolean markedAvailable);
+    }
+
+    /** Receives one appointment row. */
+    interface AppointmentVisitor {
+        void appointment(int id, String studentUsername, String subject, int duration, LocalDateTime time,
+                         String status, boolean priority, boolean inQueue, boolean holdsSlot);
+    }
+
+    private final Path file;
+    private final ByteBuffer data; // Read with absolute gets only, so it can be shared between threads
+    private final String[] strings; // Decoded on first use
+    private final Map<String, Integer> userRows = new HashMap<>();
+    private final Map<String, Integer> staffRows = new LinkedHashMap<>();
+
+    private SnapshotImage(Path file, ByteBuffer data) {
+        this.file = file;
+        this.data = data;
+        this.strings = new String[count(H_STRINGS)];
+        for (int row = 0; row < count(H_USERS); row++) {
+            int at = rowOffset(H_USERS, USER_BYTES, row);
+            userRows.put(string(data.getInt(at)), row);
+            int staffRow = data.getInt(at + 28);
+            if (staffRow >= 0) {
+                staffRows.put(string(data.getInt(at)), staffRow);
+            }
+        }
+    }
+
+    /**
+     * Maps a snapshot file and checks that it is complete and undamaged.
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot, or fails its checksum.
+     */
+    static SnapshotImage map(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot (bad size " + size + "): " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); // Stays valid after the channel is closed
+        }
+        if (data.getInt(H_MAGIC) != MAGIC || data.getInt(H_VERSION) != VERSION) {
+            throw new IOException("Not a snapshot (or unsupported version): " + file);
+        }
+        if (data.getInt(H_FILE_LENGTH) != data.capacity()) {
+            throw new IOException("Snapshot is truncated: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate().position(HEADER_BYTES));
+        if ((int) crc.getValue() != data.getInt(H_CRC)) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+        return new SnapshotImage(file, data);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int getNextAppointmentId() {
+        return data.getInt(H_NEXT_APPOINTMENT_ID);
+    }
+
+    /** Highest notification ID in the snapshot (0 if none), so new IDs can start above it. */
+    long getMaxNotificationId() {
+        return data.getLong(H_MAX_NOTIFICATION_ID);
+    }
+
+    /** Number of rows (users, slots, appointments and notifications) in the snapshot. */
+    int getRowCount() {
+        return count(H_USERS) + count(H_SLOTS) + count(H_APPOINTMENTS) + count(H_NOTIFICATIONS);
+    }
+
+    /** Creates every user (with their subjects). Users are always needed, so they are not loaded lazily. */
+    List<User> users() {
+        List<User> users = new ArrayList<>(count(H_USERS));
+        for (int row = 0; row < count(H_USERS); row++) {
+            int at = rowOffset(H_USERS, USER_BYTES, row);
+            User user = new User(string(data.getInt(at)), string(data.getInt(at + 4)), string(data.getInt(at + 8)),
+                    string(data.getInt(at + 12)), string(data.getInt(at + 16)));
+            int subjectRef = data.getInt(at + 20);
+            for (int i = 0; i < data.getInt(at + 24); i++) {
+                user.addSubject(string(ref(subjectRef + i)));
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    /** Usernames of the staff members that have slot and appointment rows. */
+    Set<String> staffUsernames() {
+        return Collections.unmodifiableSet(staffRows.keySet());
+    }
+
+    /** Staff members a student has appointments with (so their rows can be loaded first). */
+    List<String> staffOfStudent(String username) {
+        Integer row = userRows.get(username);
+        if (row == null) {
+            return Collections.emptyList();
+        }
+        int at = rowOffset(H_USERS, USER_BYTES, row);
+        int staffRef = data.getInt(at + 32);
+        List<String> staff = new ArrayList<>();
+        for (int i = 0; i < data.getInt(at + 36); i++) {
+            staff.add(username(data.getInt(rowOffset(H_STAFF, STAFF_BYTES, ref(staffRef + i)))));
+        }
+        return staff;
+    }
+
+    /** The staff member who owns an appointment, found by binary search over the ID index; null if absent. */
+    String staffOfAppointment(int appointmentId) {
+        int low = 0;
+        int high = count(H_APPOINTMENT_IDS) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int at = rowOffset(H_APPOINTMENT_IDS, 8, mid);
+            int id = data.getInt(at);
+            if (id < appointmentId) {
+                low = mid + 1;
+            } else if (id > appointmentId) {
+                high = mid - 1;
+            } else {
+                int staffRow = data.getInt(rowOffset(H_APPOINTMENTS, APPOINTMENT_BYTES, data.getInt(at + 4)) + 28);
+                return username(data.getInt(rowOffset(H_STAFF, STAFF_BYTES, staffRow)));
+            }
+        }
+        return null;
+    }
+
+    /** Visits a staff member's slots in date/time order. */
+    void forEachSlot(String staffUsername, SlotVisitor visitor) {
+        Integer staffRow = staffRows.get(staffUsername);
+        if (staffRow == null) {
+            return;
+        }
+        int staffAt = rowOffset(H_STAFF, STAFF_BYTES, staffRow);
+        int first = data.getInt(staffAt + 4);
+        for (int row = first; row < first + data.getInt(staffAt + 8); row++) {
+            int at = rowOffset(H_SLOTS, SLOT_BYTES, row);
+            LocalDateTime start = fromEpochMinute(data.getInt(at));
+            LocalDateTime end = fromEpochMinute(data.getInt(at + 4));
+            visitor.slot(start.toLocalDate(), start.toLocalTime(), end.toLocalTime(), (data.getInt(at + 8) & SLOT_MARKED_AVAILABLE) != 0);
+        }
+    }
+
+    /** Checks if a staff member has any slot on a date, by binary search over their date/time-ordered slot rows. */
+    boolean hasSlotsOn(String staffUsername, LocalDate date) {
+        Integer staffRow = staffRows.get(staffUsername);
+        if (staffRow == null) {
+            return false;
+        }
+        int staffAt = rowOffset(H_STAFF, STAFF_BYTES, staffRow);
+        int low = data.getInt(staffAt + 4);
+        int high = low + data.getInt(staffAt + 8) - 1;
+        long dayStart = date.toEpochDay() * 1440;
+        while (low <= high) { // Find the first slot starting on or after the date
+            int mid = (low + high) >>> 1;
+            if (data.getInt(rowOffset(H_SLOTS, SLOT_BYTES, mid)) < dayStart) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int end = data.getInt(staffAt + 4) + data.getInt(staffAt + 8);
+        return low < end && data.getInt(rowOffset(H_SLOTS, SLOT_BYTES, low)) < dayStart + 1440;
+    }
+
+    /** Visits a staff member's appointments in ID order. */
+    void forEachAppointment(String staffUsername, AppointmentVisitor visitor) {
+        Integer staffRow = staffRows.get(staffUsername);
+        if (staffRow == null) {
+            return;
+        }
+        int staffAt = rowOffset(H_STAFF, STAFF_BYTES, staffRow);
+        int first = data.getInt(staffAt + 12);
+        for (int row = first; row < first + data.getInt(staffAt + 16); row++) {
+            int at = rowOffset(H_APPOINTMENTS, APPOINTMENT_BYTES, row);
+            int flags = data.getInt(at + 24);
+            visitor.appointment(data.getInt(at), username(data.getInt(at + 4)), string(data.getInt(at + 8)), data.getInt(at + 12),
+                    fromEpochMinute(data.getInt(at + 16)), string(data.getInt(at + 20)),
+                    (flags & APPOINTMENT_PRIORITY) != 0, (flags & APPOINTMENT_IN_QUEUE) != 0, (flags & APPOINTMENT_HOLDS_SLOT) != 0);
+        }
+    }
+
+    /** Checks if a user has any notification rows. */
+    boolean hasNotifications(String username) {
+        Integer row = userRows.get(username);
+        return row != null && data.getInt(rowOffset(H_USERS, USER_BYTES, row) + 44) > 0;
+    }
+
+    /** Creates a user's notifications in delivery order (empty if none). */
+    List<Notification> notifications(String username) {
+        Integer userRow = userRows.get(username);
+        if (userRow == null) {
+            return Collections.emptyList();
+        }
+        int userAt = rowOffset(H_USERS, USER_BYTES, userRow);
+        int first = data.getInt(userAt + 40);
+        int count = data.getInt(userAt + 44);
+        List<Notification> notifications = new ArrayList<>(count);
+        for (int row = first; row < first + count; row++) {
+            int at = rowOffset(H_NOTIFICATIONS, NOTIFICATION_BYTES, row);
+            long id = data.getLong(at);
+            at += 8;
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(data.getLong(at), data.getInt(at + 8), ZoneOffset.UTC);
+            int flags = data.getInt(at + 16);
+            NotificationContent content;
+            if ((flags & NOTIFICATION_TEMPLATED) != 0) {
+                long time = data.getLong(at + 32);
+                content = NotificationContent.of(NotificationTemplate.fromCode(data.getInt(at + 12)), string(data.getInt(at + 20)),
+                        string(data.getInt(at + 24)), string(data.getInt(at + 28)),
+                        (time == NO_TIME) ? null : LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC));
+            } else {
+                content = NotificationContent.plain(string(data.getInt(at + 12)));
+            }
+            notifications.add(new Notification(id, timestamp, content, (flags & NOTIFICATION_READ) != 0));
+        }
+        return notifications;
+    }
+
+    // --- Reading helpers ---
+
+    private int count(int headerField) {
+        return data.getInt(headerField);
+    }
+
+    private int rowOffset(int headerField, int rowBytes, int row) {
+        return data.getInt(headerField + 4) + row * rowBytes;
+    }
+
+    private int ref(int index) {
+        return data.getInt(rowOffset(H_REFS, 4, index));
+    }
+
+    private String username(int userRow) {
+        return string(data.getInt(rowOffset(H_USERS, USER_BYTES, userRow)));
+    }
+
+    // Decodes a string from the string table once; racing threads at worst decode it twice
+    private String string(int index) {
+        if (index < 0) {
+            return null;
+        }
+        String value = strings[index];
+        if (value == null) {
+            int at = data.getInt(rowOffset(H_STRINGS, 4, index));
+            byte[] bytes = new byte[data.getInt(at)];
+            data.get(at + 4, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private static LocalDateTime fromEpochMinute(int epochMinute) {
+        return LocalDateTime.of(LocalDate.ofEpochDay(Math.floorDiv(epochMinute, 1440)), LocalTime.ofSecondOfDay(Math.floorMod(epochMinute, 1440) * 60L));
+    }
+
+    private static int toEpochMinute(LocalDate date, LocalTime time) throws IOException {
+        if (time.getSecond() != 0 || time.getNano() != 0) {
+            throw new IOException("Snapshot times must be whole minutes: " + date + " " + time);
+        }
+        return Math.toIntExact(date.toEpochDay() * 1440 + time.getHour() * 60L + time.getMinute());
+    }
+
+    /**
+     * Collects the state to snapshot and writes it in the layout above.
+     * Rows can be added in any order; they are grouped when the file is written.
+     */
+    static final class Writer {
+
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final List<User> users = new ArrayList<>();
+        private final Map<String, List<int[]>> slotsByStaff = new HashMap<>();
+        private final Map<String, List<int[]>> appointmentsByStaff = new HashMap<>();
+        private final Map<String, Set<String>> staffByStudent = new HashMap<>();
+        private final Map<String, List<NotificationRow>> notificationsByUser = new HashMap<>();
+        private int nextAppointmentId;
+        private long maxNotificationId;
+
+        void user(User user) {
+            users.add(user);
+        }
+
+        void slot(String staffUsername, LocalDate date, TimeSlot slot) throws IOException {
+            slotsByStaff.computeIfAbsent(staffUsername, k -> new ArrayList<>()).add(new int[] {
+                    toEpochMinute(date, slot.getStartTime()), toEpochMinute(date, slot.getEndTime()),
+                    slot.isMarkedAvailable() ? SLOT_MARKED_AVAILABLE : 0});
+        }
+
+        void appointment(Appointment appointment, boolean inQueue, boolean holdsSlot) throws IOException {
+            String student = appointment.getStudent().getUsername();
+            String staff = appointment.getProfessorOrCounselor().getUsername();
+            LocalDateTime time = appointment.getAppointmentTime();
+            int flags = (appointment.isPriority() ? APPOINTMENT_PRIORITY : 0) | (inQueue ? APPOINTMENT_IN_QUEUE : 0)
+                    | (holdsSlot ? APPOINTMENT_HOLDS_SLOT : 0);
+            appointmentsByStaff.computeIfAbsent(staff, k -> new ArrayList<>()).add(new int[] {
+                    appointment.getId(), intern(student), intern(appointment.getSubject()), appointment.getEstimatedDuration(),
+                    toEpochMinute(time.toLocalDate(), time.toLocalTime()), intern(appointment.getStatus()), flags, -1});
+            staffByStudent.computeIfAbsent(student, k -> new LinkedHashSet<>()).add(staff);
+        }
+
+        void notification(String username, Notification notification, boolean read) {
+            NotificationContent content = notification.getContent();
+            NotificationRow row;
+            if (content.getTemplate() == null) {
+                row = new NotificationRow(notification.getId(), notification.getTimestamp(), intern(content.getPlainText()),
+                        read ? NOTIFICATION_READ : 0, -1, -1, -1, NO_TIME);
+            } else {
+                LocalDateTime time = content.getTime();
+                row = new NotificationRow(notification.getId(), notification.getTimestamp(), content.getTemplate().getCode(),
+                        (read ? NOTIFICATION_READ : 0) | NOTIFICATION_TEMPLATED, intern(content.getStaffName()),
+                        intern(content.getStudentName()), intern(content.getSubject()),
+                        (time == null) ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC)); // Templates show whole minutes at most
+            }
+            notificationsByUser.computeIfAbsent(username, k -> new ArrayList<>()).add(row);
+            maxNotificationId = Math.max(maxNotificationId, notification.getId());
+        }
+
+        void nextAppointmentId(int nextId) {
+            this.nextAppointmentId = nextId;
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return stringIndexes.computeIfAbsent(value, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        /**
+         * Lays out and writes the snapshot with a FileChannel, then forces it to disk.
+         */
+        void writeTo(Path file) throws IOException {
+            // Users and staff rows; user fields are interned first so string indexes are assigned up front
+            Map<String, Integer> userRows = new HashMap<>();
+            Map<String, Integer> staffRows = new LinkedHashMap<>();
+            for (User user : users) {
+                userRows.put(user.getUsername(), userRows.size());
+                intern(user.getUsername());
+                if (user.getRole().equals("PROFESSOR") || user.getRole().equals("COUNSELOR")) {
+                    staffRows.put(user.getUsername(), staffRows.size());
+                }
+            }
+            List<Integer> refs = new ArrayList<>();
+            List<int[]> userTable = new ArrayList<>();
+            List<int[]> staffTable = new ArrayList<>();
+            List<int[]> slotTable = new ArrayList<>();
+            List<int[]> appointmentTable = new ArrayList<>();
+            List<NotificationRow> notificationTable = new ArrayList<>();
+            for (String staff : staffRows.keySet()) {
+                List<int[]> slots = slotsByStaff.getOrDefault(staff, Collections.emptyList());
+                slots.sort((a, b) -> Integer.compare(a[0], b[0]));
+                List<int[]> appointments = appointmentsByStaff.getOrDefault(staff, Collections.emptyList());
+                appointments.sort((a, b) -> Integer.compare(a[0], b[0]));
+                staffTable.add(new int[] {userRows.get(staff), slotTable.size(), slots.size(), appointmentTable.size(), appointments.size()});
+                slotTable.addAll(slots);
+                for (int[] appointment : appointments) {
+                    appointment[1] = userRows.get(strings.get(appointment[1])); // Student username -> user row
+                    appointment[7] = staffRows.get(staff);
+                    appointmentTable.add(appointment);
+                }
+            }
+            for (User user : users) {
+                int subjectRef = refs.size();
+                for (String subject : user.getSubjects()) {
+                    refs.add(intern(subject));
+                }
+                int staffRef = refs.size();
+                for (String staff : staffByStudent.getOrDefault(user.getUsername(), Collections.emptySet())) {
+                    refs.add(staffRows.get(staff));
+                }
+                List<NotificationRow> notifications = notificationsByUser.getOrDefault(user.getUsername(), Collections.emptyList());
+                int notificationRow = notificationTable.size();
+                notificationTable.addAll(notifications);
+                Integer staffRow = staffRows.get(user.getUsername());
+                userTable.add(new int[] {intern(user.getUsername()), intern(user.getPassword()), intern(user.getRole()),
+                        intern(user.getName()), intern(user.getEmail()), subjectRef, user.getSubjects().size(),
+                        staffRow == null ? -1 : staffRow, staffRef, refs.size() - staffRef, notificationRow, notifications.size()});
+            }
+            List<int[]> idTable = new ArrayList<>(appointmentTable.size());
+            for (int row = 0; row < appointmentTable.size(); row++) {
+                idTable.add(new int[] {appointmentTable.get(row)[0], row});
+            }
+            idTable.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+            List<byte[]> encoded = new ArrayList<>(strings.size());
+            int stringBytes = 0;
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                stringBytes += 4 + bytes.length;
+            }
+
+            int stringsAt = HEADER_BYTES;
+            int refsAt = stringsAt + 4 * strings.size() + stringBytes;
+            int usersAt = refsAt + 4 * refs.size();
+            int staffAt = usersAt + USER_BYTES * userTable.size();
+            int slotsAt = staffAt + STAFF_BYTES * staffTable.size();
+            int appointmentsAt = slotsAt + SLOT_BYTES * slotTable.size();
+            int idsAt = appointmentsAt + APPOINTMENT_BYTES * appointmentTable.size();
+            int notificationsAt = idsAt + 8 * idTable.size();
+            long length = (long) notificationsAt + (long) NOTIFICATION_BYTES * notificationTable.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot would exceed 2 GiB");
+            }
+
+            ByteBuffer out = ByteBuffer.allocate((int) length);
+            out.putInt(H_MAGIC, MAGIC).putInt(H_VERSION, VERSION).putInt(H_FILE_LENGTH, (int) length)
+                    .putInt(H_NEXT_APPOINTMENT_ID, nextAppointmentId).putLong(H_MAX_NOTIFICATION_ID, maxNotificationId);
+            putSection(out, H_STRINGS, strings.size(), stringsAt);
+            putSection(out, H_REFS, refs.size(), refsAt);
+            putSection(out, H_USERS, userTable.size(), usersAt);
+            putSection(out, H_STAFF, staffTable.size(), staffAt);
+            putSection(out, H_SLOTS, slotTable.size(), slotsAt);
+            putSection(out, H_APPOINTMENTS, appointmentTable.size(), appointmentsAt);
+            putSection(out, H_APPOINTMENT_IDS, idTable.size(), idsAt);
+            putSection(out, H_NOTIFICATIONS, notificationTable.size(), notificationsAt);
+
+            out.position(stringsAt);
+            int stringAt = stringsAt + 4 * strings.size();
+            for (byte[] bytes : encoded) {
+                out.putInt(stringAt);
+                stringAt += 4 + bytes.length;
+            }
+            for (byte[] bytes : encoded) {
+                out.putInt(bytes.length).put(bytes);
+            }
+            for (int ref : refs) {
+                out.putInt(ref);
+            }
+            putRows(out, userTable, USER_BYTES);
+            putRows(out, staffTable, STAFF_BYTES);
+            putRows(out, slotTable, SLOT_BYTES);
+            putRows(out, appointmentTable, APPOINTMENT_BYTES);
+            putRows(out, idTable, 8);
+            for (NotificationRow row : notificationTable) {
+                out.putLong(row.id).putLong(row.epochSecond).putInt(row.nano).putInt(row.message).putInt(row.flags)
+                        .putInt(row.staffName).putInt(row.studentName).putInt(row.subject).putLong(row.time);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(out.array(), HEADER_BYTES, (int) length - HEADER_BYTES);
+            out.putInt(H_CRC, (int) crc.getValue());
+
+            out.position(0);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+        }
+
+        private static void putSection(ByteBuffer out, int headerField, int count, int offset) {
+            out.putInt(headerField, count).putInt(headerField + 4, offset);
+        }
+
+        private static final class NotificationRow {
+            final long id;
+            final long epochSecond;
+            final int nano;
+            final int message; // String index, or the template code if NOTIFICATION_TEMPLATED is set
+            final int flags;
+            final int staffName;
+            final int studentName;
+            final int subject;
+            final long time;
+
+            NotificationRow(long id, LocalDateTime timestamp, int message, int flags, int staffName, int studentName,
+                            int subject, long time) {
+                this.id = id;
+                this.epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC); // Just an encoding of the local date-time
+                this.nano = timestamp.getNano();
+                this.message = message;
+                this.flags = flags;
+                this.staffName = staffName;
+                this.studentName = studentName;
+                this.subject = subject;
+                this.time = time;
+            }
+        }
+
+        // Writes int rows, padding each to its fixed width
+        private static void putRows(ByteBuffer out, List<int[]> rows, int rowBytes) {
+            for (int[] row : rows) {
+                int start = out.position();
+                for (int value : row) {
+                    out.putInt(value);
+                }
+                out.position(start + rowBytes);
+            }
+        }
+    }
+}
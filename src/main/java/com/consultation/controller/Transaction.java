@@ -0,0 +1,121 @@
+package com.consultation.controller;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A small all-or-nothing unit of work for controller mutations that touch several objects
+ * (e.g. handing slots between appointments and moving their times).
+ * <p>
+ * Changes are first collected in a write set. On {@link #commit()} every precondition is checked
+ * against the current state before anything is changed; only then are the writes applied in order,
+ * each one pushed onto an undo log. If a write fails part-way, the undo log is replayed in reverse,
+ * so the state ends up exactly as it was. Follow-up actions (such as notifications) only run once
+ * the whole transaction has been applied.
+ * <p>
+ * A Transaction does no locking of its own: the caller must hold the lock(s) that cover everything
+ * in the write set (the controller holds the staff lock), so other lock-holding callers never see
+ * a half-applied state. Not thread-safe; use each instance from one thread and commit it once.
+ */
+final class Transaction {
+
+    private final String name;
+    private final List<Write> writeSet = new ArrayList<>();
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private boolean committed;
+
+    /**
+     * @param name A short description used in log messages.
+     */
+    Transaction(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds a write whose precondition must hold before the transaction starts.
+     *
+     * @param description  What the write does (for log messages).
+     * @param precondition Checked for every write before any write is applied.
+     * @param apply        Performs the change. May throw to abort the transaction.
+     * @param undo         Reverts the change. Only called if {@code apply} completed.
+     */
+    void write(String description, BooleanSupplier precondition, Runnable apply, Runnable undo) {
+        writeSet.add(new Write(description, precondition, apply, undo));
+    }
+
+    /**
+     * Adds a write with no precondition.
+     */
+    void write(String description, Runnable apply, Runnable undo) {
+        write(description, () -> true, apply, undo);
+    }
+
+    /**
+     * Registers an action to run after a successful commit (skipped if the transaction aborts).
+     */
+    void afterCommit(Runnable action) {
+        afterCommit.add(action);
+    }
+
+    /**
+     * Validates and applies the write set.
+     *
+     * @return true if every write was applied, false if a precondition failed or a write threw
+     *         (in which case all applied writes have been undone).
+     * @throws IllegalStateException if the transaction was already committed.
+     */
+    boolean commit() {
+        if (committed) {
+            throw new IllegalStateException("Transaction '" + name + "' was already committed.");
+        }
+        committed = true;
+
+        for (Write w : writeSet) {
+            if (!w.precondition.getAsBoolean()) {
+                System.err.println("Transaction '" + name + "' aborted before any change: precondition failed for " + w.description);
+                return false;
+            }
+        }
+
+        Deque<Write> undoLog = new ArrayDeque<>();
+        try {
+            for (Write w : writeSet) {
+                w.apply.run();
+                undoLog.push(w);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Transaction '" + name + "' failed (" + e.getMessage() + "). Undoing " + undoLog.size() + " applied change(s)...");
+            while (!undoLog.isEmpty()) {
+                Write w = undoLog.pop();
+                try {
+                    w.undo.run();
+                } catch (RuntimeException undoError) {
+                    System.err.println("  *** UNDO FAILED for " + w.description + ": " + undoError.getMessage());
+                }
+            }
+            return false;
+        }
+
+        for (Runnable action : afterCommit) {
+            action.run();
+        }
+        return true;
+    }
+
+    private static final class Write {
+        final String description;
+        final BooleanSupplier precondition;
+        final Runnable apply;
+        final Runnable undo;
+
+        Write(String description, BooleanSupplier precondition, Runnable apply, Runnable undo) {
+            this.description = description;
+            this.precondition = precondition;
+            this.apply = apply;
+            this.undo = undo;
+        }
+    }
+}
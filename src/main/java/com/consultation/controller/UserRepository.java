@@ -0,0 +1,10 @@
+package com.consultation.controller;
+
+import com.consultation.model.User;
+
+/** Changes to user accounts. Part of the {@link ConsultationStore} SPI. */
+public interface UserRepository {
+    void userRegistered(User user);
+
+    void subjectAdded(String username, String subject);
+}
@@ -0,0 +1,166 @@
+package com.consultation.event;
+
+import com.consultation.model.Appointment;
+import com.consultation.model.TimeSlot;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Something that happened to an appointment or a schedule, published on an {@link EventBus} once the
+ * change is complete (and durable, for a persistent store). Every event concerns one staff member's
+ * queue or schedule, so subscribers can ignore events for staff they don't show.
+ * <p>
+ * Events refer to the live model objects; read them, don't change them.
+ */
+public abstract class DomainEvent {
+
+    private final LocalDateTime occurredAt = LocalDateTime.now();
+
+    /** When the event was published. */
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    /** Username of the professor or counselor whose queue or schedule changed. */
+    public abstract String getStaffUsername();
+
+    /** Base class of the appointment lifecycle events. */
+    public abstract static class AppointmentEvent extends DomainEvent {
+        private final Appointment appointment;
+
+        AppointmentEvent(Appointment appointment) {
+            this.appointment = Objects.requireNonNull(appointment, "Appointment cannot be null");
+        }
+
+        public Appointment getAppointment() {
+            return appointment;
+        }
+
+        @Override
+        public String getStaffUsername() {
+            return appointment.getProfessorOrCounselor().getUsername();
+        }
+
+        public String getStudentUsername() {
+            return appointment.getStudent().getUsername();
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "{appointment=" + appointment.getId() + ", staff=" + getStaffUsername() + '}';
+        }
+    }
+
+    /** A student booked an appointment; it is queued and holds its slot. */
+    public static final class AppointmentBooked extends AppointmentEvent {
+        public AppointmentBooked(Appointment appointment) {
+            super(appointment);
+        }
+    }
+
+    /** An appointment was cancelled and its slot freed. */
+    public static final class AppointmentCancelled extends AppointmentEvent {
+        private final boolean removed;
+
+        /**
+         * @param removed true if the appointment was deleted; false if it was kept with status CANCELLED.
+         */
+        public AppointmentCancelled(Appointment appointment, boolean removed) {
+            super(appointment);
+            this.removed = removed;
+        }
+
+        /** Checks if the appointment was deleted (rather than kept with status CANCELLED). */
+        public boolean isRemoved() {
+            return removed;
+        }
+    }
+
+    /** An appointment left the queue and is now in progress. */
+    public static final class AppointmentStarted extends AppointmentEvent {
+        public AppointmentStarted(Appointment appointment) {
+            super(appointment);
+        }
+    }
+
+    /** An appointment was completed and its slot freed. */
+    public static final class AppointmentCompleted extends AppointmentEvent {
+        public AppointmentCompleted(Appointment appointment) {
+            super(appointment);
+        }
+    }
+
+    /**
+     * An appointment's priority was set or removed. Setting it can move the appointment to an earlier
+     * time, shifting other pending appointments of the same staff member to later times.
+     */
+    public static final class AppointmentPriorityChanged extends AppointmentEvent {
+        private final boolean priority;
+        private final List<Appointment> rescheduled;
+
+        public AppointmentPriorityChanged(Appointment appointment, boolean priority, List<Appointment> rescheduled) {
+            super(appointment);
+            this.priority = priority;
+            this.rescheduled = Collections.unmodifiableList(rescheduled);
+        }
+
+        /** The appointment's new priority. */
+        public boolean isPriority() {
+            return priority;
+        }
+
+        /** Other appointments whose times changed as a result (empty if none). */
+        public List<Appointment> getRescheduled() {
+            return rescheduled;
+        }
+    }
+
+    /** Base class of the schedule events. */
+    public abstract static class SlotEvent extends DomainEvent {
+        private final String staffUsername;
+        private final LocalDate date;
+        private final TimeSlot slot;
+
+        SlotEvent(String staffUsername, LocalDate date, TimeSlot slot) {
+            this.staffUsername = Objects.requireNonNull(staffUsername, "Staff username cannot be null");
+            this.date = Objects.requireNonNull(date, "Date cannot be null");
+            this.slot = Objects.requireNonNull(slot, "Slot cannot be null");
+        }
+
+        @Override
+        public String getStaffUsername() {
+            return staffUsername;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public TimeSlot getSlot() {
+            return slot;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "{staff=" + staffUsername + ", date=" + date + ", start=" + slot.getStartTime() + '}';
+        }
+    }
+
+    /** A time slot was added to a staff member's schedule. */
+    public static final class SlotAdded extends SlotEvent {
+        public SlotAdded(String staffUsername, LocalDate date, TimeSlot slot) {
+            super(staffUsername, date, slot);
+        }
+    }
+
+    /** A time slot was removed from a staff member's schedule. */
+    public static final class SlotRemoved extends SlotEvent {
+        public SlotRemoved(String staffUsername, LocalDate date, TimeSlot slot) {
+            super(staffUsername, date, slot);
+        }
+    }
+}
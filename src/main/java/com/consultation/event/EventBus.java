@@ -0,0 +1,248 @@
+package com.consultation.event;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-process publish/subscribe bus for {@link DomainEvent}s.
+ * <p>
+ * Synchronous subscribers are called on the publishing thread, one event at a time, before
+ * {@link #publish(DomainEvent)} returns; keep them short. Asynchronous subscribers are fed by one
+ * dispatch thread, which drains everything published since its last round and hands each subscriber
+ * the matching events as one batch, so a burst of changes costs a subscriber one call. A batch goes
+ * through the subscriber's executor if it has one (e.g. {@code SwingUtilities::invokeLater}),
+ * otherwise it runs on the dispatch thread. Each subscriber sees events in publication order.
+ * <p>
+ * The dispatch thread is only started by the first asynchronous subscription, and publishing costs
+ * nothing beyond the synchronous calls while there is none. A failing subscriber is logged and skipped.
+ * Thread-safe.
+ */
+public final class EventBus implements Closeable {
+
+    private static final int CAPACITY = 4096;
+    private static final int MAX_BATCH = 512;
+
+    private final List<Subscription> syncSubscribers = new CopyOnWriteArrayList<>();
+    private final List<Subscription> asyncSubscribers = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<DomainEvent> queue = new ArrayBlockingQueue<>(CAPACITY);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchDispatched = lock.newCondition(); // Signalled for threads in flush()
+    private long queued;        // guarded by lock; events queued for async subscribers so far
+    private long dispatched;    // guarded by lock; events handed to async subscribers so far
+    private Thread dispatcher;  // guarded by lock; null until the first async subscription
+    private boolean closed;     // guarded by lock
+
+    /**
+     * Subscribes to events of a type (and its subtypes) on the publishing thread.
+     *
+     * @param type       The event type, e.g. {@code DomainEvent.AppointmentBooked.class}, or {@code DomainEvent.class} for all.
+     * @param subscriber Called once per event.
+     */
+    public void subscribe(Class<? extends DomainEvent> type, EventSubscriber subscriber) {
+        syncSubscribers.add(new Subscription(type, subscriber, null));
+    }
+
+    /**
+     * Subscribes to batches of events of a type (and its subtypes) on the bus's dispatch thread.
+     *
+     * @see #subscribeAsync(Class, EventSubscriber, Executor)
+     */
+    public void subscribeAsync(Class<? extends DomainEvent> type, EventSubscriber subscriber) {
+        subscribeAsync(type, subscriber, null);
+    }
+
+    /**
+     * Subscribes to batches of events of a type (and its subtypes), delivered through the given executor.
+     * The executor must run tasks in the order they are submitted, or batches may arrive out of order.
+     *
+     * @param executor Runs each batch, or null to run it on the dispatch thread.
+     */
+    public void subscribeAsync(Class<? extends DomainEvent> type, EventSubscriber subscriber, Executor executor) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("EventBus is closed");
+            }
+            if (dispatcher == null) {
+                dispatcher = new Thread(this::dispatchLoop, "domain-event-dispatch");
+                dispatcher.setDaemon(true);
+                dispatcher.start();
+            }
+            asyncSubscribers.add(new Subscription(type, subscriber, executor));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a subscriber (sync or async). Batches already handed to its executor may still arrive.
+     *
+     * @return true if it was subscribed.
+     */
+    public boolean unsubscribe(EventSubscriber subscriber) {
+        boolean removed = syncSubscribers.removeIf(s -> s.subscriber == subscriber);
+        return asyncSubscribers.removeIf(s -> s.subscriber == subscriber) || removed;
+    }
+
+    /**
+     * Publishes an event: calls the synchronous subscribers, then queues it for the asynchronous ones
+     * (waiting for room if the queue is full). After {@link #close()} only synchronous subscribers get it.
+     */
+    public void publish(DomainEvent event) {
+        for (Subscription subscription : syncSubscribers) {
+            if (subscription.type.isInstance(event)) {
+                subscription.deliver(List.of(event));
+            }
+        }
+        if (asyncSubscribers.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            queued++;
+        } finally {
+            lock.unlock();
+        }
+        // Counted before it is queued, so a concurrent flush() may also wait for this one; never less
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(event);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // Never drop an event; restore the flag once it is queued
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until every event published before this call has been handed to the asynchronous
+     * subscribers (or their executors). Returns at once if nothing is outstanding.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            long target = queued;
+            boolean interrupted = false;
+            while (dispatched < target && dispatcher != null && dispatcher.isAlive()) {
+                try {
+                    batchDispatched.await(100, TimeUnit.MILLISECONDS); // Rechecks that the dispatcher is still running
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Dispatches everything still queued and stops the dispatch thread. */
+    @Override
+    public void close() {
+        flush();
+        Thread stopping;
+        lock.lock();
+        try {
+            closed = true;
+            stopping = dispatcher;
+        } finally {
+            lock.unlock();
+        }
+        if (stopping != null) {
+            stopping.interrupt();
+            try {
+                stopping.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        List<DomainEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if (queue.isEmpty()) {
+                    return; // close(): everything has been dispatched
+                }
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for (Subscription subscription : asyncSubscribers) {
+                List<DomainEvent> matching = new ArrayList<>(batch.size());
+                for (DomainEvent event : batch) {
+                    if (subscription.type.isInstance(event)) {
+                        matching.add(event);
+                    }
+                }
+                if (!matching.isEmpty()) {
+                    subscription.deliver(matching);
+                }
+            }
+            lock.lock();
+            try {
+                dispatched += batch.size();
+                batchDispatched.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batch.clear();
+        }
+    }
+
+    /** A subscriber, the event type it wants, and the executor its batches go through (null: run directly). */
+    private static final class Subscription {
+        final Class<? extends DomainEvent> type;
+        final EventSubscriber subscriber;
+        final Executor executor;
+
+        Subscription(Class<? extends DomainEvent> type, EventSubscriber subscriber, Executor executor) {
+            if (type == null || subscriber == null) {
+                throw new IllegalArgumentException("Event type and subscriber cannot be null");
+            }
+            this.type = type;
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        void deliver(List<DomainEvent> events) {
+            try {
+                if (executor == null) {
+                    call(events);
+                } else {
+                    executor.execute(() -> call(events));
+                }
+            } catch (RuntimeException e) { // e.g. the executor was shut down
+                System.err.println("EventBus: Could not dispatch " + events.size() + " event(s): " + e);
+            }
+        }
+
+        private void call(List<DomainEvent> events) {
+            try {
+                subscriber.onEvents(events);
+            } catch (RuntimeException e) {
+                System.err.println("EventBus: Subscriber failed on " + events.size() + " event(s): " + e);
+            }
+        }
+    }
+}
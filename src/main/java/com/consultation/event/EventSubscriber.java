@@ -0,0 +1,18 @@
+package com.consultation.event;
+
+import java.util.List;
+
+/**
+ * Receives domain events from an {@link EventBus}.
+ */
+@FunctionalInterface
+public interface EventSubscriber {
+
+    /**
+     * Called with events of the subscribed type, oldest first (never empty). A synchronous subscriber
+     * gets one event per call; an asynchronous one gets everything published since its last call.
+     *
+     * @param events The events, in publication order.
+     */
+    void onEvents(List<DomainEvent> events);
+}
@@ -6,11 +6,12 @@ public class Appointment {
     private int id;
     private User student;
     private User professorOrCounselor;
-    private LocalDateTime appointmentTime;
-    private String status; // "PENDING", "IN_PROGRESS", "COMPLETED", "CANCELLED"
-    private boolean isPriority;
+    private volatile LocalDateTime appointmentTime; // volatile: written under the staff lock, read by any thread
+    private volatile String status; // "PENDING", "IN_PROGRESS", "COMPLETED", "CANCELLED"
+    private volatile boolean isPriority;
     private String subject; // For professor appointments only
     private int estimatedDuration; // in minutes
+    private volatile TimeSlot timeSlot; // Slot currently holding this appointment, maintained by TimeSlot
 
     public Appointment(int id, User student, User professorOrCounselor, LocalDateTime appointmentTime, 
                       String subject, int estimatedDuration) {
@@ -76,4 +77,13 @@ public class Appointment {
     public void setEstimatedDuration(int estimatedDuration) {
         this.estimatedDuration = estimatedDuration;
     }
+
+    public TimeSlot getTimeSlot() {
+        return timeSlot;
+    }
+
+    // Only TimeSlot changes this, when a compare-and-set in tryBook, tryRelease or tryReplace succeeds
+    void setTimeSlot(TimeSlot timeSlot) {
+        this.timeSlot = timeSlot;
+    }
 } 
\ No newline at end of file
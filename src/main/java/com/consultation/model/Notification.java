@@ -2,18 +2,30 @@ package com.consultation.model;
 
 import java.time.LocalDateTime;
 import java.util.Objects; // Import for Objects.hash
-import java.util.UUID;    // Import for generating unique IDs
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a notification message for a user within the consultation system.
  * Each notification has a unique ID, timestamp, message content, and a read status.
+ * <p>
+ * IDs are positive longs handed out in increasing order by a process-wide counter: one atomic
+ * increment, no allocation and no {@code SecureRandom}. Re-created notifications move the counter
+ * past their own ID, so IDs stay unique across restarts.
+ * <p>
+ * The message is held as {@link NotificationContent}: standard appointment messages keep only a
+ * template and its arguments, and the text is built the first time {@link #getMessage()} is called.
  */
 public class Notification {
 
+    /**
+     * Next ID to hand out.
+     */
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
     /**
      * Unique identifier for the notification.
      */
-    private final String id;
+    private final long id;
 
     /**
      * The date and time when the notification was generated.
@@ -21,9 +33,9 @@ public class Notification {
     private final LocalDateTime timestamp;
 
     /**
-     * The content of the notification message.
+     * The content of the notification message (a template with arguments, or plain text).
      */
-    private final String message;
+    private final NotificationContent content;
 
     /**
      * Flag indicating whether the notification has been read by the user.
@@ -39,22 +51,81 @@ public class Notification {
      * @param message   The notification message content.
      */
     public Notification(LocalDateTime timestamp, String message) {
-        // Generate a unique identifier for this notification instance
-        this.id = UUID.randomUUID().toString();
+        this(timestamp, NotificationContent.plain(message));
+    }
+
+    /**
+     * Constructs a new Notification object whose message is rendered from the given content when first read.
+     * Automatically generates a unique ID and sets the read status to false.
+     *
+     * @param timestamp The time the notification was created.
+     * @param content   The notification message content.
+     */
+    public Notification(LocalDateTime timestamp, NotificationContent content) {
+        this.id = NEXT_ID.getAndIncrement(); // Unique identifier for this notification instance
         this.timestamp = Objects.requireNonNull(timestamp, "Timestamp cannot be null");
-        this.message = Objects.requireNonNull(message, "Message cannot be null");
+        this.content = Objects.requireNonNull(content, "Content cannot be null");
         this.isRead = false; // Notifications are initially unread
     }
 
+    /**
+     * Re-creates a previously issued notification with its original ID and state
+     * (used when restoring persisted data).
+     *
+     * @param id        The notification's original unique ID.
+     * @param timestamp The time the notification was created.
+     * @param message   The notification message content.
+     * @param isRead    Whether the notification had been read.
+     */
+    public Notification(long id, LocalDateTime timestamp, String message, boolean isRead) {
+        this(id, timestamp, NotificationContent.plain(message), isRead);
+    }
+
+    /**
+     * Re-creates a previously issued notification with its original ID, content and state
+     * (used when restoring persisted data).
+     *
+     * @param id        The notification's original unique ID.
+     * @param timestamp The time the notification was created.
+     * @param content   The notification message content.
+     * @param isRead    Whether the notification had been read.
+     */
+    public Notification(long id, LocalDateTime timestamp, NotificationContent content, boolean isRead) {
+        this.id = id;
+        reserveIdsThrough(id);
+        this.timestamp = Objects.requireNonNull(timestamp, "Timestamp cannot be null");
+        this.content = Objects.requireNonNull(content, "Content cannot be null");
+        this.isRead = isRead;
+    }
+
+    /**
+     * Makes sure IDs handed out from now on are greater than the given one
+     * (e.g. the highest ID in restored data that is only loaded later).
+     *
+     * @param id An ID already in use.
+     */
+    public static void reserveIdsThrough(long id) {
+        NEXT_ID.accumulateAndGet(id + 1, Math::max);
+    }
+
     /**
      * Gets the unique ID of this notification.
      *
-     * @return The unique identifier string.
+     * @return The unique identifier.
      */
-    public String getId() {
+    public long getId() {
         return id;
     }
 
+    /**
+     * Gets a short text form of the ID, for display and logs only.
+     *
+     * @return The ID in base 36 (e.g. "2n9c").
+     */
+    public String getDisplayId() {
+        return Long.toString(id, 36);
+    }
+
     /**
      * Gets the timestamp when this notification was created.
      *
@@ -65,16 +136,27 @@ public class Notification {
     }
 
     /**
-     * Gets the message content of this notification.
+     * Gets the message content of this notification, rendering it on first use.
      *
      * @return The notification message string.
      */
     public String getMessage() {
-        return message;
+        return content.render();
+    }
+
+    /**
+     * Gets the unrendered content of this notification (for saving it without building the text).
+     *
+     * @return The notification content.
+     */
+    public NotificationContent getContent() {
+        return content;
     }
 
     /**
-     * Checks if this notification has been marked as read.
+     * Checks if this notification has been marked as read individually.
+     * A "mark all as read" in a {@link NotificationInbox} doesn't update this flag;
+     * use {@link NotificationInbox#isRead(Notification)} for notifications in an inbox.
      *
      * @return true if the notification is read, false otherwise.
      */
@@ -103,7 +185,7 @@ public class Notification {
         if (this == o) return true; // Identity check
         if (o == null || getClass() != o.getClass()) return false; // Null and type check
         Notification that = (Notification) o;
-        return Objects.equals(id, that.id); // Equality based on unique ID
+        return id == that.id; // Equality based on unique ID
     }
 
     /**
@@ -114,7 +196,7 @@ public class Notification {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id); // Hash code based on unique ID
+        return Long.hashCode(id); // Hash code based on unique ID
     }
 
     /**
@@ -126,9 +208,9 @@ public class Notification {
     @Override
     public String toString() {
         return "Notification{" +
-               "id='" + id + '\'' +
+               "id='" + getDisplayId() + '\'' +
                ", timestamp=" + timestamp +
-               ", message='" + message + '\'' +
+               ", message='" + content.render() + '\'' +
                ", isRead=" + isRead +
                '}';
     }
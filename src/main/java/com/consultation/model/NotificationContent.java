@@ -0,0 +1,97 @@
+package com.consultation.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * What a notification says: either a {@link NotificationTemplate} with its arguments, or plain text.
+ * <p>
+ * Templated content keeps references to the argument values (usually strings and times the appointment
+ * already holds), which is far smaller than a finished sentence. The text is rendered the first time
+ * {@link #render()} is called and then cached, so messages that are never read are never built.
+ * Immutable apart from that cache; safe to share between threads.
+ */
+public final class NotificationContent {
+
+    private final NotificationTemplate template; // null for plain text
+    private final String staffName;
+    private final String studentName;
+    private final String subject;
+    private final LocalDateTime time;
+    private volatile String text; // Plain text, or the cached rendering (racing readers at worst render twice)
+
+    private NotificationContent(NotificationTemplate template, String staffName, String studentName, String subject,
+                                LocalDateTime time, String text) {
+        this.template = template;
+        this.staffName = staffName;
+        this.studentName = studentName;
+        this.subject = subject;
+        this.time = time;
+        this.text = text;
+    }
+
+    /**
+     * Content made from a template. Arguments the template doesn't use may be null.
+     *
+     * @param template    The message template.
+     * @param staffName   Name of the professor or counselor.
+     * @param studentName Name of the student.
+     * @param subject     The appointment's subject.
+     * @param time        The appointment time.
+     */
+    public static NotificationContent of(NotificationTemplate template, String staffName, String studentName,
+                                         String subject, LocalDateTime time) {
+        return new NotificationContent(Objects.requireNonNull(template, "Template cannot be null"),
+                staffName, studentName, subject, time, null);
+    }
+
+    /** Content that is just the given text. */
+    public static NotificationContent plain(String text) {
+        return new NotificationContent(null, null, null, null, null, Objects.requireNonNull(text, "Message cannot be null"));
+    }
+
+    /**
+     * Gets the message text, rendering the template on first use.
+     *
+     * @return The message text.
+     */
+    public String render() {
+        String rendered = text;
+        if (rendered == null) {
+            rendered = template.render(staffName, studentName, subject, time);
+            text = rendered;
+        }
+        return rendered;
+    }
+
+    /** Checks if the text has been built (always true for plain text). */
+    public boolean isRendered() {
+        return text != null;
+    }
+
+    /** The template, or null for plain text. */
+    public NotificationTemplate getTemplate() {
+        return template;
+    }
+
+    public String getStaffName() {
+        return staffName;
+    }
+
+    public String getStudentName() {
+        return studentName;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    /** The plain text, or null for templated content (use {@link #render()} to read the message). */
+    public String getPlainText() {
+        return (template == null) ? text : null;
+    }
+}
@@ -0,0 +1,274 @@
+package com.consultation.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single user's notifications, kept in delivery order (oldest first, so the newest is always last).
+ * <p>
+ * An ID index finds any notification in O(1), so marking one as read doesn't scan the inbox.
+ * Unread entries are also linked into a list of their own (again oldest first), and their number is
+ * kept as a running count: the newest unread page is read straight off the tail of that list, in
+ * O(page) and without sorting.
+ * <p>
+ * "Mark all as read" only moves a read watermark up to the newest unread notification's ID: every
+ * entry with an ID at or below the watermark counts as read, without visiting any of them (IDs
+ * increase in delivery order). Because of that, the read flag of a {@link Notification} below the
+ * watermark is not updated; ask {@link #isRead(Notification)} instead. The watermark is an ID rather
+ * than "everything so far", so replaying a journaled "mark all" never covers a notification that was
+ * delivered concurrently and is still unread.
+ * <p>
+ * Entries can be removed from anywhere (see {@link #remove(long)} and {@link #getExpired}), so old
+ * notifications can be moved out of memory without rebuilding the inbox.
+ * <p>
+ * Thread-safe: all methods synchronize on the inbox.
+ */
+public class NotificationInbox {
+
+    private final Map<Long, Entry> byId = new LinkedHashMap<>(); // Iterates in delivery order
+    private Entry newestUnread; // Tail of the unread list, which is linked in delivery order
+    private int unreadCount;
+    private long readThroughId; // Entries with IDs up to and including this count as read
+
+    /**
+     * Appends a newly delivered (or restored) notification. One that is already marked read stays read.
+     */
+    public synchronized void add(Notification notification) {
+        Entry entry = new Entry(notification);
+        byId.put(notification.getId(), entry);
+        if (!notification.isRead()) {
+            linkUnread(entry);
+        }
+    }
+
+    /**
+     * Finds a notification by its ID.
+     *
+     * @return The notification, or null if this inbox doesn't have it.
+     */
+    public synchronized Notification get(long notificationId) {
+        Entry entry = byId.get(notificationId);
+        return (entry != null) ? entry.notification : null;
+    }
+
+    /** Checks if a notification of this inbox has been read (individually or by "mark all"). */
+    public synchronized boolean isRead(Notification notification) {
+        Entry entry = byId.get(notification.getId());
+        return entry == null || isRead(entry);
+    }
+
+    /**
+     * Marks one notification as read.
+     *
+     * @return true if it was unread until now; false if it was already read or isn't in this inbox.
+     */
+    public synchronized boolean markRead(long notificationId) {
+        Entry entry = byId.get(notificationId);
+        if (entry == null || isRead(entry)) {
+            return false;
+        }
+        entry.notification.setRead(true);
+        unlinkUnread(entry);
+        return true;
+    }
+
+    /**
+     * Marks everything delivered so far as read, in O(1).
+     *
+     * @return The ID of the newest notification this marked as read (journal it and replay it with
+     *         {@link #markReadThrough(long)}), or 0 if nothing was unread.
+     */
+    public synchronized long markAllRead() {
+        if (newestUnread == null) {
+            return 0;
+        }
+        long through = newestUnread.notification.getId();
+        markReadThrough(through);
+        return through;
+    }
+
+    /**
+     * Marks every notification with an ID up to and including the given one as read. Only the unread
+     * entries newer than that ID are visited, so marking everything is O(1).
+     *
+     * @param notificationId The newest ID to mark (e.g. as returned by {@link #markAllRead()}).
+     * @return The number of notifications that were unread until now and are read now.
+     */
+    public synchronized int markReadThrough(long notificationId) {
+        if (notificationId <= readThroughId) {
+            return 0;
+        }
+        readThroughId = notificationId;
+        Entry oldestKept = null; // Oldest entry that stays unread (newer than the watermark)
+        int kept = 0;
+        Entry entry = newestUnread;
+        while (entry != null && entry.notification.getId() > notificationId) {
+            oldestKept = entry;
+            kept++;
+            entry = entry.prevUnread;
+        }
+        if (entry != null) { // Detach the now-read part; its entries stay linked to each other and remove() unlinks them
+            entry.nextUnread = null;
+            if (oldestKept != null) {
+                oldestKept.prevUnread = null;
+            }
+        }
+        if (oldestKept == null) {
+            newestUnread = null;
+        }
+        int marked = unreadCount - kept;
+        unreadCount = kept;
+        return marked;
+    }
+
+    /** Number of unread notifications. */
+    public synchronized int getUnreadCount() {
+        return unreadCount;
+    }
+
+    /** Total number of notifications, read or not. */
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Removes a notification from the inbox.
+     *
+     * @return true if it was in this inbox.
+     */
+    public synchronized boolean remove(long notificationId) {
+        Entry entry = byId.remove(notificationId);
+        if (entry == null) {
+            return false;
+        }
+        if (!isRead(entry)) {
+            unlinkUnread(entry);
+        } else {
+            splice(entry); // May still be in a list that "mark all" left behind; don't keep its neighbours alive
+        }
+        return true;
+    }
+
+    /**
+     * Finds the notifications a retention policy would drop, oldest first. Nothing is removed; pass the
+     * IDs to {@link #remove(long)} once they are archived. Only the old end of the inbox is visited:
+     * the scan stops at the first entry that is within the size limit and newer than both cutoffs.
+     *
+     * @param maxCount         Keep at most this many of the newest notifications (0 for no limit).
+     * @param removeBefore     Drop notifications created before this time (null for no age limit).
+     * @param removeReadBefore Drop read notifications created before this time (null to keep read ones).
+     * @return The notifications to drop, oldest first (empty if none).
+     */
+    public synchronized List<Notification> getExpired(int maxCount, LocalDateTime removeBefore, LocalDateTime removeReadBefore) {
+        LocalDateTime latestCutoff = removeBefore;
+        if (latestCutoff == null || (removeReadBefore != null && removeReadBefore.isAfter(latestCutoff))) {
+            latestCutoff = removeReadBefore;
+        }
+        int overflow = (maxCount > 0) ? byId.size() - maxCount : 0;
+        List<Notification> expired = new ArrayList<>();
+        int visited = 0;
+        for (Iterator<Entry> it = byId.values().iterator(); it.hasNext(); visited++) {
+            Entry entry = it.next();
+            LocalDateTime timestamp = entry.notification.getTimestamp();
+            if (visited >= overflow && (latestCutoff == null || !timestamp.isBefore(latestCutoff))) {
+                break; // Everything after this is newer (timestamps follow delivery order)
+            }
+            if (visited < overflow
+                    || (removeBefore != null && timestamp.isBefore(removeBefore))
+                    || (removeReadBefore != null && timestamp.isBefore(removeReadBefore) && isRead(entry))) {
+                expired.add(entry.notification);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Gets the newest unread notifications, newest first.
+     *
+     * @param limit Maximum number to return.
+     */
+    public synchronized List<Notification> getUnread(int limit) {
+        List<Notification> page = new ArrayList<>(Math.min(limit, unreadCount));
+        for (Entry e = newestUnread; e != null && page.size() < limit; e = e.prevUnread) {
+            page.add(e.notification);
+        }
+        return page;
+    }
+
+    /** Copies every notification, oldest first (e.g. to write a snapshot; pair with {@link #isRead(Notification)}). */
+    public synchronized List<Notification> getAll() {
+        List<Notification> all = new ArrayList<>(byId.size());
+        for (Entry entry : byId.values()) {
+            all.add(entry.notification);
+        }
+        return all;
+    }
+
+    private boolean isRead(Entry entry) {
+        return entry.notification.getId() <= readThroughId || entry.notification.isRead();
+    }
+
+    private void linkUnread(Entry entry) {
+        entry.prevUnread = newestUnread;
+        entry.nextUnread = null;
+        if (newestUnread != null) {
+            newestUnread.nextUnread = entry;
+        }
+        newestUnread = entry;
+        unreadCount++;
+    }
+
+    private void unlinkUnread(Entry entry) {
+        if (entry == newestUnread) {
+            newestUnread = entry.prevUnread;
+        }
+        splice(entry);
+        unreadCount--;
+    }
+
+    // Takes an entry out of whatever list it is in, joining its neighbours, and clears its links
+    private static void splice(Entry entry) {
+        if (entry.prevUnread != null) {
+            entry.prevUnread.nextUnread = entry.nextUnread;
+        }
+        if (entry.nextUnread != null) {
+            entry.nextUnread.prevUnread = entry.prevUnread;
+        }
+        entry.prevUnread = null;
+        entry.nextUnread = null;
+    }
+
+    /** Number of distinct entries reachable from this inbox, including through the unread links (for tests). */
+    synchronized int reachableEntryCount() {
+        Set<Entry> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Entry> pending = new ArrayList<>(byId.values());
+        if (newestUnread != null) {
+            pending.add(newestUnread);
+        }
+        while (!pending.isEmpty()) {
+            Entry entry = pending.remove(pending.size() - 1);
+            if (reachable.add(entry)) {
+                if (entry.prevUnread != null) pending.add(entry.prevUnread);
+                if (entry.nextUnread != null) pending.add(entry.nextUnread);
+            }
+        }
+        return reachable.size();
+    }
+
+    private static final class Entry {
+        final Notification notification;
+        Entry prevUnread;   // Older neighbour in the unread list
+        Entry nextUnread;   // Newer neighbour in the unread list
+
+        Entry(Notification notification) {
+            this.notification = notification;
+        }
+    }
+}
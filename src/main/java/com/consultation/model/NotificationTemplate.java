@@ -0,0 +1,117 @@
+package com.consultation.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The standard notification messages about appointments. A notification built from a template keeps
+ * only the template and its arguments (staff name, student name, subject, appointment time); the text
+ * is put together when somebody reads it (see {@link NotificationContent}).
+ * <p>
+ * Each template has a fixed code that is stored in saved data: never change or reuse a code, and
+ * only reword a template if old notifications may be shown with the new wording.
+ */
+public enum NotificationTemplate {
+
+    BOOKED_FOR_STUDENT(1) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Appointment booked with " + staff + " for " + subject + " on " + format(time) + ".";
+        }
+    },
+    BOOKED_FOR_STAFF(2) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "New appointment booked by " + student + " for " + subject + " on " + format(time) + ".";
+        }
+    },
+    CANCELLED_FOR_STUDENT(3) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Your appointment with " + staff + " for '" + subject + "' on " + format(time) + " has been cancelled.";
+        }
+    },
+    CANCELLED_FOR_STAFF(4) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Your appointment with " + student + " for '" + subject + "' on " + format(time) + " has been cancelled.";
+        }
+    },
+    STATUS_CANCELLED_FOR_STAFF(5) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Appointment with " + student + " for '" + subject + "' on " + format(time) + " has been cancelled.";
+        }
+    },
+    STARTING(6) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Your consultation with " + staff + " regarding '" + subject + "' is starting now.";
+        }
+    },
+    COMPLETED(7) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Your consultation with " + staff + " regarding '" + subject + "' on " + format(time) + " is complete.";
+        }
+    },
+    PRIORITY_SET_IN_PLACE(8) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Your appointment at " + format(time) + " is now high priority.";
+        }
+    },
+    PRIORITY_SET(9) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Your appointment with " + staff + " at " + format(time) + " is now high priority.";
+        }
+    },
+    TIME_ADJUSTED(10) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "Your appointment time with " + staff + " was adjusted to " + format(time) + " due to a queue priority change.";
+        }
+    },
+    PRIORITY_REMOVED(11) {
+        @Override
+        String render(String staff, String student, String subject, LocalDateTime time) {
+            return "The high priority status for your appointment with " + staff + " on " + format(time) + " has been removed.";
+        }
+    };
+
+    // Formatter for user-friendly times in notifications
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, HH:mm");
+
+    private final int code;
+
+    NotificationTemplate(int code) {
+        this.code = code;
+    }
+
+    /** The template's stored code. */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Finds a template by its stored code.
+     *
+     * @throws IllegalArgumentException if no template has that code.
+     */
+    public static NotificationTemplate fromCode(int code) {
+        for (NotificationTemplate template : values()) {
+            if (template.code == code) {
+                return template;
+            }
+        }
+        throw new IllegalArgumentException("Unknown notification template code: " + code);
+    }
+
+    /** Builds the message text from the arguments (unused ones may be null). */
+    abstract String render(String staff, String student, String subject, LocalDateTime time);
+
+    private static String format(LocalDateTime time) {
+        return (time != null) ? time.format(TIME_FORMATTER) : "?";
+    }
+}
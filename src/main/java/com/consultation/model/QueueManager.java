@@ -1,99 +1,309 @@
 package com.consultation.model;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.PriorityQueue;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * A staff member's waiting queue, kept as a small balanced search tree (a treap) ordered by
+ * (priority first, then appointment time, then appointment ID).
+ * A handle map from appointment ID to tree node makes add, poll, remove and priority changes
+ * all O(log n); the next appointment is the leftmost node.
+ * <p>
+ * Every node knows the size and total minutes of its subtree, which gives the place in line and the
+ * wait ahead of any one appointment in O(log n). Listing the queue is an in-order walk, with no sorting.
+ * Estimated wait totals (overall and per priority tier) are kept as running sums, so they are O(1).
+ */
 public class QueueManager {
-    private Queue<Appointment> regularQueue;
-    private Queue<Appointment> priorityQueue;
+    // Display/poll order: priority appointments first, then earliest time, then lowest ID
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparing((Entry e) -> !e.priority)
+            .thenComparing(e -> e.time)
+            .thenComparingInt(e -> e.id);
+
+    private final Map<Integer, Entry> entries; // appointmentId -> its node in the treap
+    private Entry orderRoot; // Root of the queue-order treap
+    private int priorityMinutes; // Running total of estimated minutes in the priority tier
+    private int regularMinutes;  // Running total of estimated minutes in the regular tier
     private User professorOrCounselor;
 
     public QueueManager() {
-        this.regularQueue = new LinkedList<>();
-        this.priorityQueue = new LinkedList<>();
+        this.entries = new HashMap<>();
     }
 
     public QueueManager(User professorOrCounselor) {
+        this();
         this.professorOrCounselor = professorOrCounselor;
-        this.regularQueue = new LinkedList<>();
-        this.priorityQueue = new LinkedList<>();
     }
 
-    public void addToRegularQueue(Appointment appointment) {
-        regularQueue.add(appointment);
+    public void addAppointment(Appointment appointment) {
+        if (entries.containsKey(appointment.getId())) {
+            updateAppointment(appointment); // Already queued; just refresh its position
+            return;
+        }
+        Entry entry = new Entry(appointment);
+        entries.put(entry.id, entry);
+        track(entry);
     }
 
-    public void addToPriorityQueue(Appointment appointment) {
-        priorityQueue.add(appointment);
+    public Appointment getNextAppointment() {
+        Entry head = first();
+        if (head == null) {
+            return null;
+        }
+        entries.remove(head.id);
+        untrack(head);
+        return head.appointment;
     }
 
-    public void removeFromRegularQueue(Appointment appointment) {
-        regularQueue.remove(appointment);
+    public Appointment peekNextAppointment() {
+        Entry head = first();
+        return head == null ? null : head.appointment;
     }
 
-    public void removeFromPriorityQueue(Appointment appointment) {
-        priorityQueue.remove(appointment);
+    public boolean removeAppointment(Appointment appointment) {
+        Entry entry = entries.remove(appointment.getId());
+        if (entry == null) {
+            return false;
+        }
+        untrack(entry);
+        return true;
     }
 
-    public void addAppointment(Appointment appointment) {
-        if (appointment.isPriority()) {
-            priorityQueue.add(appointment);
-        } else {
-            regularQueue.add(appointment);
+    public boolean contains(Appointment appointment) {
+        return entries.containsKey(appointment.getId());
+    }
+
+    // Re-reads the appointment's priority and time (e.g. after a reschedule) and moves it to its new position
+    public boolean updateAppointment(Appointment appointment) {
+        Entry entry = entries.get(appointment.getId());
+        if (entry == null) {
+            return false;
         }
+        untrack(entry); // Take it out of the treap and totals under its old key
+        entry.priority = appointment.isPriority();
+        entry.time = appointment.getAppointmentTime();
+        entry.minutes = appointment.getEstimatedDuration();
+        track(entry);
+        return true;
     }
 
-    public Appointment getNextAppointment() {
-        if (!priorityQueue.isEmpty()) {
-            return priorityQueue.poll();
+    public int getQueueSize() {
+        return entries.size();
+    }
+
+    public int getEstimatedWaitTime() {
+        return priorityMinutes + regularMinutes;
+    }
+
+    public int getEstimatedPriorityWaitTime() {
+        return priorityMinutes;
+    }
+
+    public int getEstimatedRegularWaitTime() {
+        return regularMinutes;
+    }
+
+    // Minutes of queued work ahead of this appointment, or -1 if it isn't in this queue
+    public int getEstimatedWaitTimeFor(Appointment appointment) {
+        QueuePosition position = getPosition(appointment);
+        return position == null ? -1 : position.getMinutesAhead();
+    }
+
+    // Place in line and wait ahead of this appointment, or null if it isn't in this queue
+    public QueuePosition getPosition(Appointment appointment) {
+        Entry target = entries.get(appointment.getId());
+        if (target == null) {
+            return null;
+        }
+        int countAhead = 0;
+        int minutesAhead = 0;
+        Entry node = orderRoot;
+        while (node != null) {
+            if (ORDER.compare(target, node) <= 0) {
+                node = node.left;
+            } else {
+                countAhead += subtreeSize(node.left) + 1;
+                minutesAhead += subtreeMinutes(node.left) + node.minutes;
+                node = node.right;
+            }
+        }
+        return new QueuePosition(countAhead + 1, entries.size(), minutesAhead);
+    }
+
+    // Queued appointments in the same order they will be served (a copy, safe to keep)
+    public List<Appointment> getOrderedAppointments() {
+        List<Appointment> result = new ArrayList<>(entries.size());
+        Deque<Entry> path = new ArrayDeque<>(); // In-order walk of the treap
+        Entry node = orderRoot;
+        while (node != null || !path.isEmpty()) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+            node = path.pop();
+            result.add(node.appointment);
+            node = node.right;
+        }
+        return result;
+    }
+
+    public boolean setPriority(Appointment appointment, boolean priority) {
+        if (!entries.containsKey(appointment.getId())) {
+            return false;
         }
-        return regularQueue.poll();
+        appointment.setPriority(priority);
+        return updateAppointment(appointment);
     }
 
-    public void removeAppointment(Appointment appointment) {
-        if (appointment.isPriority()) {
-            priorityQueue.remove(appointment);
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public User getProfessorOrCounselor() {
+        return professorOrCounselor;
+    }
+
+    // --- Running totals and queue-order treap ---
+
+    private void track(Entry entry) {
+        if (entry.priority) {
+            priorityMinutes += entry.minutes;
         } else {
-            regularQueue.remove(appointment);
+            regularMinutes += entry.minutes;
         }
+        orderRoot = insert(orderRoot, entry);
     }
 
-    public int getQueueSize() {
-        return regularQueue.size() + priorityQueue.size();
+    private void untrack(Entry entry) {
+        if (entry.priority) {
+            priorityMinutes -= entry.minutes;
+        } else {
+            regularMinutes -= entry.minutes;
+        }
+        orderRoot = delete(orderRoot, entry);
     }
 
-    public int getEstimatedWaitTime() {
-        int totalMinutes = 0;
-        for (Appointment app : regularQueue) {
-            totalMinutes += app.getEstimatedDuration();
+    // Next in line: the leftmost node
+    private Entry first() {
+        Entry node = orderRoot;
+        if (node == null) {
+            return null;
         }
-        for (Appointment app : priorityQueue) {
-            totalMinutes += app.getEstimatedDuration();
+        while (node.left != null) {
+            node = node.left;
         }
-        return totalMinutes;
+        return node;
     }
 
-    public Queue<Appointment> getRegularQueue() {
-        return regularQueue;
+    private static Entry insert(Entry node, Entry entry) {
+        if (node == null) {
+            entry.left = null;
+            entry.right = null;
+            entry.subtreeSize = 1;
+            entry.subtreeMinutes = entry.minutes;
+            return entry;
+        }
+        if (ORDER.compare(entry, node) < 0) {
+            node.left = insert(node.left, entry);
+            if (node.left.weight > node.weight) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, entry);
+            if (node.right.weight > node.weight) {
+                node = rotateLeft(node);
+            }
+        }
+        return pull(node);
     }
 
-    public Queue<Appointment> getPriorityQueue() {
-        return priorityQueue;
+    private static Entry delete(Entry node, Entry entry) {
+        if (node == null) {
+            return null;
+        }
+        if (node == entry) {
+            return merge(node.left, node.right);
+        }
+        if (ORDER.compare(entry, node) < 0) {
+            node.left = delete(node.left, entry);
+        } else {
+            node.right = delete(node.right, entry);
+        }
+        return pull(node);
     }
 
-    public boolean setPriority(Appointment appointment, boolean priority) {
-        if (regularQueue.contains(appointment) || priorityQueue.contains(appointment)) {
-            removeAppointment(appointment);
-            appointment.setPriority(priority);
-            addAppointment(appointment);
-            return true;
+    // Joins two treaps where every key in 'low' sorts before every key in 'high'
+    private static Entry merge(Entry low, Entry high) {
+        if (low == null) {
+            return high;
         }
-        return false;
+        if (high == null) {
+            return low;
+        }
+        if (low.weight > high.weight) {
+            low.right = merge(low.right, high);
+            return pull(low);
+        }
+        high.left = merge(low, high.left);
+        return pull(high);
     }
 
-    public boolean isEmpty() {
-        return regularQueue.isEmpty() && priorityQueue.isEmpty();
+    private static Entry rotateRight(Entry node) {
+        Entry top = node.left;
+        node.left = top.right;
+        top.right = pull(node);
+        return top;
+    }
+
+    private static Entry rotateLeft(Entry node) {
+        Entry top = node.right;
+        node.right = top.left;
+        top.left = pull(node);
+        return top;
+    }
+
+    private static Entry pull(Entry node) {
+        node.subtreeSize = subtreeSize(node.left) + 1 + subtreeSize(node.right);
+        node.subtreeMinutes = subtreeMinutes(node.left) + node.minutes + subtreeMinutes(node.right);
+        return node;
+    }
+
+    private static int subtreeSize(Entry node) {
+        return node == null ? 0 : node.subtreeSize;
+    }
+
+    private static int subtreeMinutes(Entry node) {
+        return node == null ? 0 : node.subtreeMinutes;
+    }
+
+    // Queue node; holds a snapshot of the sort key and duration so outside changes can't corrupt the tree or totals
+    private static class Entry {
+        final Appointment appointment;
+        final int id;
+        boolean priority;
+        LocalDateTime time;
+        int minutes;
+
+        // Treap links: random weight keeps the tree balanced, subtree totals feed rank and prefix sums
+        final int weight = ThreadLocalRandom.current().nextInt();
+        Entry left;
+        Entry right;
+        int subtreeSize;
+        int subtreeMinutes;
+
+        Entry(Appointment appointment) {
+            this.appointment = appointment;
+            this.id = appointment.getId();
+            this.priority = appointment.isPriority();
+            this.time = appointment.getAppointmentTime();
+            this.minutes = appointment.getEstimatedDuration();
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package com.consultation.model;
+
+/**
+ * Where one appointment currently stands in its staff member's queue.
+ * A snapshot: it does not change when the queue moves on.
+ */
+public class QueuePosition {
+
+    private final int rank;
+    private final int queueSize;
+    private final int minutesAhead;
+
+    /**
+     * Constructs a new QueuePosition.
+     *
+     * @param rank         1-based place in line (1 means next to be served).
+     * @param queueSize    Total number of appointments in the queue.
+     * @param minutesAhead Estimated minutes of consultations ahead of this appointment.
+     */
+    public QueuePosition(int rank, int queueSize, int minutesAhead) {
+        this.rank = rank;
+        this.queueSize = queueSize;
+        this.minutesAhead = minutesAhead;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getMinutesAhead() {
+        return minutesAhead;
+    }
+
+    public int getAppointmentsAhead() {
+        return rank - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + rank + " of " + queueSize + " (~" + minutesAhead + " min ahead)";
+    }
+}
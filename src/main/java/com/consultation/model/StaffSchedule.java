@@ -0,0 +1,221 @@
+package com.consultation.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds all time slots of a single professor or counselor.
+ * Dates are kept in calendar order and each day's slots are kept in start-time order,
+ * so callers can iterate "from today onwards" without sorting anything.
+ * Slots on the same day never overlap (enforced by {@link #addSlot(LocalDate, TimeSlot)}).
+ * <p>
+ * The schedule also keeps an index of its currently free slots, grouped by slot length and
+ * ordered by start date-time, so the earliest slot that fits a booking can be found without
+ * scanning booked days. Slots report booking/availability changes back to their schedule.
+ * <p>
+ * Adding and removing slots must be done by one thread at a time (the controller holds the staff lock),
+ * but the free-slot index is a concurrent map, so lock-free bookers may query it and book/release
+ * slots at any time. The index can briefly contain a slot that was just booked; callers confirm
+ * with {@link TimeSlot#tryBook(Appointment)} and move on to the next candidate if that fails.
+ */
+public class StaffSchedule {
+
+    /**
+     * date -> (slot start time -> slot), both levels sorted.
+     */
+    private final NavigableMap<LocalDate, NavigableMap<LocalTime, TimeSlot>> slotsByDate;
+
+    /**
+     * Free-slot index: slot length in minutes -> (slot start date-time -> slot).
+     * Only slots for which {@link TimeSlot#isAvailable()} is true are present.
+     * There are only a handful of distinct slot lengths, so a lookup is a few O(log n) probes.
+     * Per-length maps are never removed once created, so concurrent adds cannot be lost to a removal.
+     */
+    private final ConcurrentNavigableMap<Long, ConcurrentNavigableMap<LocalDateTime, TimeSlot>> freeSlotsByLength;
+
+    /**
+     * Constructs an empty schedule.
+     */
+    public StaffSchedule() {
+        this.slotsByDate = new TreeMap<>();
+        this.freeSlotsByLength = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Checks if the schedule has no dates at all.
+     *
+     * @return true if no slots exist on any date.
+     */
+    public boolean isEmpty() {
+        return slotsByDate.isEmpty();
+    }
+
+    /**
+     * Checks if any slots exist for the given date.
+     *
+     * @param date The date to check.
+     * @return true if at least one slot exists on that date.
+     */
+    public boolean hasSlotsOn(LocalDate date) {
+        NavigableMap<LocalTime, TimeSlot> day = slotsByDate.get(date);
+        return day != null && !day.isEmpty();
+    }
+
+    /**
+     * Gets all slots on a date in start-time order.
+     * Returns a new list so callers may modify it freely.
+     *
+     * @param date The date to look up.
+     * @return The slots on that date, sorted by start time, or an empty list.
+     */
+    public List<TimeSlot> getSlots(LocalDate date) {
+        NavigableMap<LocalTime, TimeSlot> day = slotsByDate.get(date);
+        return day == null ? new ArrayList<>() : new ArrayList<>(day.values());
+    }
+
+    /**
+     * Gets a read-only, start-time ordered view of the slots on each date from the given date onwards.
+     *
+     * @param fromDate The first date to include.
+     * @return An ordered, unmodifiable view of date -> (start time -> slot).
+     */
+    public NavigableMap<LocalDate, NavigableMap<LocalTime, TimeSlot>> datesFrom(LocalDate fromDate) {
+        return Collections.unmodifiableNavigableMap(slotsByDate.tailMap(fromDate, true));
+    }
+
+    /**
+     * Gets the slot starting at exactly the given time on a date.
+     *
+     * @param date      The date of the slot.
+     * @param startTime The start time of the slot.
+     * @return The matching TimeSlot, or null if none.
+     */
+    public TimeSlot getSlot(LocalDate date, LocalTime startTime) {
+        NavigableMap<LocalTime, TimeSlot> day = slotsByDate.get(date);
+        return day == null ? null : day.get(startTime);
+    }
+
+    /**
+     * Finds the earliest free slot starting strictly after the given moment that is long enough
+     * for the requested duration.
+     *
+     * @param after           Only slots starting after this date-time are considered.
+     * @param durationMinutes The required length in minutes. Must be positive.
+     * @return The earliest fitting free TimeSlot, or null if none exists.
+     */
+    public TimeSlot findEarliestFreeSlot(LocalDateTime after, int durationMinutes) {
+        if (durationMinutes <= 0) {
+            return null;
+        }
+        Map.Entry<LocalDateTime, TimeSlot> best = null;
+        for (ConcurrentNavigableMap<LocalDateTime, TimeSlot> slotsOfLength : freeSlotsByLength.tailMap((long) durationMinutes, true).values()) {
+            Map.Entry<LocalDateTime, TimeSlot> candidate = slotsOfLength.higherEntry(after);
+            if (candidate != null && (best == null || candidate.getKey().isBefore(best.getKey()))) {
+                best = candidate;
+            }
+        }
+        return best == null ? null : best.getValue();
+    }
+
+    /**
+     * Finds an existing slot on the date that overlaps the range [startTime, endTime).
+     * Because slots on a day never overlap, the only candidate is the last slot starting before endTime,
+     * so this is a single O(log n) lookup.
+     *
+     * @param date      The date to check.
+     * @param startTime Start of the range.
+     * @param endTime   End of the range.
+     * @return The overlapping TimeSlot, or null if the range is free.
+     */
+    public TimeSlot findOverlap(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        NavigableMap<LocalTime, TimeSlot> day = slotsByDate.get(date);
+        if (day == null) {
+            return null;
+        }
+        Map.Entry<LocalTime, TimeSlot> candidate = day.lowerEntry(endTime);
+        if (candidate != null && candidate.getValue().getEndTime().isAfter(startTime)) {
+            return candidate.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Adds a slot to the date if it does not overlap any existing slot on that date.
+     *
+     * @param date The date of the slot. Must not be null.
+     * @param slot The slot to add. Must not be null.
+     * @return true if added, false if it overlaps an existing slot.
+     */
+    public boolean addSlot(LocalDate date, TimeSlot slot) {
+        Objects.requireNonNull(date, "Date cannot be null");
+        Objects.requireNonNull(slot, "Slot cannot be null");
+        if (findOverlap(date, slot.getStartTime(), slot.getEndTime()) != null) {
+            return false;
+        }
+        slotsByDate.computeIfAbsent(date, d -> new TreeMap<>()).put(slot.getStartTime(), slot);
+        slot.attachTo(this, date);
+        indexIfFree(slot);
+        return true;
+    }
+
+    /**
+     * Removes a free slot (matched by TimeSlot.equals) from a date.
+     * The slot is first withdrawn atomically so a concurrent booking cannot land in it while it is removed.
+     * The date entry itself is dropped once its last slot is removed.
+     *
+     * @param date The date of the slot.
+     * @param slot The slot to remove.
+     * @return true if the slot was found, free, and removed.
+     */
+    public boolean removeSlot(LocalDate date, TimeSlot slot) {
+        NavigableMap<LocalTime, TimeSlot> day = slotsByDate.get(date);
+        if (day == null || slot == null) {
+            return false;
+        }
+        TimeSlot existing = day.get(slot.getStartTime());
+        if (existing == null || !existing.equals(slot) || !existing.tryRetire()) {
+            return false;
+        }
+        day.remove(slot.getStartTime());
+        if (day.isEmpty()) {
+            slotsByDate.remove(date);
+        }
+        unindex(existing);
+        existing.attachTo(null, null);
+        return true;
+    }
+
+    /**
+     * Re-indexes a slot after its booking or availability changed. Called by TimeSlot.
+     *
+     * @param slot The slot whose state changed.
+     */
+    void slotStateChanged(TimeSlot slot) {
+        unindex(slot);
+        indexIfFree(slot);
+    }
+
+    private void indexIfFree(TimeSlot slot) {
+        if (slot.isAvailable()) {
+            freeSlotsByLength.computeIfAbsent(slot.getDurationMinutes(), k -> new ConcurrentSkipListMap<>())
+                    .put(LocalDateTime.of(slot.getDate(), slot.getStartTime()), slot);
+        }
+    }
+
+    private void unindex(TimeSlot slot) {
+        NavigableMap<LocalDateTime, TimeSlot> slotsOfLength = freeSlotsByLength.get(slot.getDurationMinutes());
+        if (slotsOfLength != null) {
+            slotsOfLength.remove(LocalDateTime.of(slot.getDate(), slot.getStartTime()));
+        }
+    }
+}
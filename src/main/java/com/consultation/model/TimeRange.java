@@ -0,0 +1,68 @@
+package com.consultation.model;
+
+import java.time.LocalTime;
+import java.util.Objects;
+
+/**
+ * A plain start/end time pair on a single day, used to describe availability
+ * that has not been turned into TimeSlots yet (e.g. for bulk slot creation).
+ */
+public class TimeRange {
+
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+
+    /**
+     * Constructs a new TimeRange.
+     *
+     * @param startTime The start of the range. Must not be null.
+     * @param endTime   The end of the range. Must not be null and must be after startTime.
+     * @throws NullPointerException if any argument is null.
+     * @throws IllegalArgumentException if endTime is not after startTime.
+     */
+    public TimeRange(LocalTime startTime, LocalTime endTime) {
+        Objects.requireNonNull(startTime, "Start time cannot be null");
+        Objects.requireNonNull(endTime, "End time cannot be null");
+        if (!endTime.isAfter(startTime)) {
+            throw new IllegalArgumentException("End time must be strictly after start time.");
+        }
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Checks if this range overlaps another (touching end-to-start does not count as overlap).
+     *
+     * @param other The other range.
+     * @return true if the two ranges share any time.
+     */
+    public boolean overlaps(TimeRange other) {
+        return startTime.isBefore(other.endTime) && endTime.isAfter(other.startTime);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimeRange that = (TimeRange) o;
+        return startTime.equals(that.startTime) && endTime.equals(that.endTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startTime, endTime);
+    }
+
+    @Override
+    public String toString() {
+        return startTime + "-" + endTime;
+    }
+}
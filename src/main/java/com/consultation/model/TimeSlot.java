@@ -1,11 +1,17 @@
 package com.consultation.model;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Objects; // Import for Objects.equals and Objects.hash
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Represents a specific time interval within a staff member's schedule.
  * A TimeSlot can be either available or booked with a single appointment.
+ * <p>
+ * The booking is held in an atomic reference: {@link #tryBook(Appointment)} and
+ * {@link #tryRelease(Appointment)} claim and free the slot with a single compare-and-set,
+ * so concurrent bookers never need a lock to avoid double-booking.
  */
 public class TimeSlot {
 
@@ -19,23 +25,36 @@ public class TimeSlot {
      */
     private final LocalTime endTime;
 
+    /**
+     * Placeholder occupant for a slot that has been withdrawn from its schedule, so no booking can claim it.
+     */
+    private static final Appointment RETIRED = new Appointment(-1, null, null, null, null, 0);
+
     /**
      * The Appointment currently booked in this slot, or null if available.
      */
-    private Appointment appointment; // Only one appointment per slot
+    private final AtomicReference<Appointment> booking; // Only one appointment per slot
 
     /**
      * Flag indicating if the slot is generally marked as available for booking.
      * Even if true, the slot might be actually *booked* if `appointment` is not null.
      * Use `isAvailable()` for the effective availability check.
+     * Volatile because tryBook and isAvailable read it without a lock.
      */
-    public boolean isMarkedAvailable; // Renamed for clarity
+    private volatile boolean markedAvailable;
 
     /**
      * The Professor or Counselor this time slot belongs to.
      */
     private final User professorOrCounselor;
 
+    /**
+     * The schedule (and date within it) this slot was added to, or null if not in a schedule yet.
+     * The schedule is told about booking/availability changes so its free-slot index stays current.
+     */
+    private StaffSchedule schedule;
+    private LocalDate date;
+
     /**
      * Constructs a new TimeSlot. Initially, it is marked as available and has no appointment.
      *
@@ -43,7 +62,7 @@ public class TimeSlot {
      * @param endTime            The end time for the slot. Must not be null and must be after startTime.
      * @param professorOrCounselor The staff user this slot belongs to. Must not be null.
      * @throws NullPointerException if any argument is null.
-     * @throws IllegalArgumentException if endTime is not after startTime.
+     * @throws IllegalArgumentException if endTime is not after startTime, or either time is not a whole minute.
      */
     public TimeSlot(LocalTime startTime, LocalTime endTime, User professorOrCounselor) {
         Objects.requireNonNull(startTime, "Start time cannot be null");
@@ -53,12 +72,25 @@ public class TimeSlot {
         if (!endTime.isAfter(startTime)) {
             throw new IllegalArgumentException("End time must be strictly after start time.");
         }
+        if (!isWholeMinute(startTime) || !isWholeMinute(endTime)) { // Snapshots store slot times in minutes
+            throw new IllegalArgumentException("Slot times must be whole minutes: " + startTime + "-" + endTime);
+        }
 
         this.startTime = startTime;
         this.endTime = endTime;
         this.professorOrCounselor = professorOrCounselor;
-        this.appointment = null; // Initially empty
-        this.isMarkedAvailable = true; // Slots are generally available when created
+        this.booking = new AtomicReference<>(null); // Initially empty
+        this.markedAvailable = true; // Slots are generally available when created
+    }
+
+    /**
+     * Checks if a time has no seconds or fraction of a second, as slot times must.
+     *
+     * @param time The time to check.
+     * @return true if the time is on a whole minute.
+     */
+    public static boolean isWholeMinute(LocalTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0;
     }
 
     /**
@@ -68,11 +100,7 @@ public class TimeSlot {
      * @return true if the slot is free and marked available, false otherwise.
      */
     public boolean isAvailable() {
-<<<<<<< HEAD
-        return isMarkedAvailable && appointment == null;
-=======
-        return appointment == null; // Only check if not booked
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
+        return markedAvailable && booking.get() == null;
     }
 
     /**
@@ -83,7 +111,17 @@ public class TimeSlot {
      * @param available true to mark as generally available, false otherwise.
      */
     public void setMarkedAvailable(boolean available) {
-        this.isMarkedAvailable = available;
+        this.markedAvailable = available;
+        notifySchedule();
+    }
+
+    /**
+     * Checks if this slot is marked as generally available, regardless of whether it is booked.
+     *
+     * @return true if the slot is marked available, false otherwise.
+     */
+    public boolean isMarkedAvailable() {
+        return markedAvailable;
     }
 
     /**
@@ -112,28 +150,19 @@ public class TimeSlot {
      * @return true if the slot is available and long enough, false otherwise.
      */
     public boolean canAccommodate(int durationMinutes) {
-<<<<<<< HEAD
+        return isAvailable() && isLongEnoughFor(durationMinutes);
+    }
+
+    /**
+     * Checks only whether the slot is long enough for the duration, ignoring its booking state.
+     */
+    private boolean isLongEnoughFor(int durationMinutes) {
         if (durationMinutes <= 0) {
             return false;
         }
         long slotDurationSeconds = java.time.Duration.between(startTime, endTime).getSeconds();
         long requiredSeconds = (long) durationMinutes * 60;
-        return isAvailable() && slotDurationSeconds >= requiredSeconds;
-=======
-        // First check if duration is valid
-        if (durationMinutes <= 0) {
-            return false;
-        }
-        
-        // Check if slot is available (not booked)
-        if (appointment != null) {
-            return false;
-        }
-
-        // Calculate and check duration
-        long slotDurationMinutes = java.time.Duration.between(startTime, endTime).toMinutes();
-        return slotDurationMinutes >= durationMinutes;
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
+        return slotDurationSeconds >= requiredSeconds;
     }
 
     /**
@@ -153,14 +182,91 @@ public class TimeSlot {
             long slotDurationMinutes = java.time.Duration.between(startTime, endTime).toMinutes();
             throw new IllegalStateException("Time slot duration (" + slotDurationMinutes + " min) cannot accommodate the appointment duration (" + appointment.getEstimatedDuration() + " min).");
         }
-        this.appointment = appointment;
-<<<<<<< HEAD
-        // Keep isMarkedAvailable as true, the booking is handled by appointment field.
-        // If the intent was that booking makes the slot unavailable *in the schedule*,
-        // you might uncomment the next line, but `isAvailable()` already covers this.
-        // this.isMarkedAvailable = false; // --> Usually NOT needed here if using `isAvailable()` check
-=======
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
+        if (!tryBook(appointment)) {
+            throw new IllegalStateException("Time slot at " + startTime + " was booked by someone else.");
+        }
+        // Keep markedAvailable as true, the booking is handled by the booking reference.
+    }
+
+    /**
+     * Atomically claims this slot for the appointment if it is free, marked available and long enough.
+     * Losing a race to another booker simply returns false; the caller should try another slot.
+     *
+     * @param appointment The appointment to book into this slot. Must not be null.
+     * @return true if this call booked the slot, false otherwise.
+     */
+    public boolean tryBook(Appointment appointment) {
+        Objects.requireNonNull(appointment, "Appointment cannot be null");
+        if (!markedAvailable || !isLongEnoughFor(appointment.getEstimatedDuration())) {
+            return false;
+        }
+        if (!booking.compareAndSet(null, appointment)) {
+            return false;
+        }
+        appointment.setTimeSlot(this); // Back-reference so the controller can find this slot directly
+        notifySchedule();
+        return true;
+    }
+
+    /**
+     * Atomically frees this slot if (and only if) it is still held by the given appointment.
+     *
+     * @param appointment The appointment expected to hold the slot.
+     * @return true if this call freed the slot, false if it was held by something else.
+     */
+    public boolean tryRelease(Appointment appointment) {
+        if (appointment == null || !booking.compareAndSet(appointment, null)) {
+            return false;
+        }
+        if (appointment.getTimeSlot() == this) {
+            appointment.setTimeSlot(null);
+        }
+        // Slot becomes effectively available again IF it was marked as available.
+        notifySchedule();
+        return true;
+    }
+
+    /**
+     * Atomically hands this slot from one appointment to another without it ever becoming free,
+     * so concurrent bookers cannot claim it in between (used when shifting appointments).
+     *
+     * @param current     The appointment expected to hold the slot.
+     * @param replacement The appointment that should hold it afterwards. Must fit the slot's length.
+     * @return true if the slot now holds the replacement, false if it was not held by {@code current} or is too short.
+     */
+    public boolean tryReplace(Appointment current, Appointment replacement) {
+        Objects.requireNonNull(replacement, "Replacement appointment cannot be null");
+        if (current == null || !isLongEnoughFor(replacement.getEstimatedDuration())) {
+            return false;
+        }
+        if (!booking.compareAndSet(current, replacement)) {
+            return false;
+        }
+        if (current.getTimeSlot() == this) {
+            current.setTimeSlot(null);
+        }
+        replacement.setTimeSlot(this);
+        return true;
+    }
+
+    /**
+     * Atomically withdraws a free slot so that it can no longer be booked (used before removing it from a schedule).
+     *
+     * @return true if the slot was free and is now withdrawn, false if it is booked.
+     */
+    boolean tryRetire() {
+        if (!booking.compareAndSet(null, RETIRED)) {
+            return false;
+        }
+        notifySchedule();
+        return true;
+    }
+
+    // Undoes tryRetire if the slot could not be removed after all
+    void unretire() {
+        if (booking.compareAndSet(RETIRED, null)) {
+            notifySchedule();
+        }
     }
 
     /**
@@ -169,7 +275,8 @@ public class TimeSlot {
      * @return The Appointment object, or null if the slot is not booked.
      */
     public Appointment getAppointment() {
-        return appointment;
+        Appointment current = booking.get();
+        return current == RETIRED ? null : current;
     }
 
     /**
@@ -178,11 +285,7 @@ public class TimeSlot {
      * but is now empty.
      */
     public void removeAppointment() {
-        this.appointment = null;
-<<<<<<< HEAD
-        // Slot becomes effectively available again IF it was marked as available.
-=======
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
+        tryRelease(getAppointment());
     }
 
     /**
@@ -191,7 +294,38 @@ public class TimeSlot {
      * @return true if an appointment is present, false otherwise.
      */
     public boolean isBooked() {
-        return appointment != null;
+        return getAppointment() != null;
+    }
+
+    /**
+     * Gets the date of this slot, as recorded when it was added to a StaffSchedule.
+     *
+     * @return The slot's date, or null if the slot is not part of a schedule.
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the length of this slot in whole minutes.
+     *
+     * @return The slot duration in minutes.
+     */
+    public long getDurationMinutes() {
+        return java.time.Duration.between(startTime, endTime).toMinutes();
+    }
+
+    // Called by StaffSchedule when the slot is added to / removed from a schedule
+    synchronized void attachTo(StaffSchedule schedule, LocalDate date) {
+        this.schedule = schedule;
+        this.date = date;
+    }
+
+    // Per-slot monitor: concurrent changes to the same slot re-index one at a time, each reading the latest state
+    private synchronized void notifySchedule() {
+        if (schedule != null) {
+            schedule.slotStateChanged(this);
+        }
     }
 
     /**
@@ -207,7 +341,7 @@ public class TimeSlot {
      * Compares this TimeSlot to another object for equality.
      * Two TimeSlots are considered equal if they belong to the same staff member
      * and have the same start and end times. The booking status (`appointment`)
-     * and `isMarkedAvailable` flag are NOT considered for equality, as these represent
+     * and `markedAvailable` flag are NOT considered for equality, as these represent
      * the state *within* the slot, not the slot's identity itself in the schedule.
      *
      * @param o The object to compare with.
@@ -246,9 +380,10 @@ public class TimeSlot {
     @Override
     public String toString() {
         String status;
+        Appointment appointment = getAppointment();
         if (appointment != null) {
             status = "Booked by " + appointment.getStudent().getUsername();
-        } else if (isMarkedAvailable) {
+        } else if (markedAvailable) {
             status = "Available";
         } else {
             status = "Marked Unavailable";
@@ -260,4 +395,4 @@ public class TimeSlot {
                ", status=" + status +
                '}';
     }
-}
\ No newline at end of file
+}
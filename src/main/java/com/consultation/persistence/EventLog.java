@@ -0,0 +1,428 @@
+package com.consultation.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, binary write-ahead log file.
+ * <p>
+ * File layout: an 8-byte header (magic, format version), then records of the form
+ * {@code [int payloadLength][int crc32(payload)][payload]}. What a payload means is up to the caller.
+ * <p>
+ * Appends are cheap: the record is encoded on the caller's thread and queued in memory. A single
+ * background writer thread writes everything queued so far and fsyncs it in one go ("group commit"),
+ * so many concurrent appenders share one fsync. A caller that needs its records on disk before it
+ * answers (e.g. before confirming a booking) calls {@link #awaitDurable()} after releasing its own locks.
+ * <p>
+ * On {@link #open(Path, RecordReader)} every intact record is handed to the reader in order. A torn
+ * or corrupt tail (e.g. from a crash mid-write) is truncated away, and appending continues after the
+ * last good record. Thread-safe.
+ * <p>
+ * A log can be split into segments: {@link #rollOver(Path)} switches appends to a new file without
+ * making appenders wait, so older segments can be read back with {@link #read(Path, RecordReader)}
+ * and deleted once their contents are covered elsewhere (e.g. by a snapshot).
+ */
+public final class EventLog implements Closeable {
+
+    private static final int MAGIC = 0x43514C47; // "CQLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8; // length + crc
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024; // Sanity bound when reading lengths back
+
+    /** Encodes one record's payload. */
+    @FunctionalInterface
+    public interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** Decodes one record's payload during replay. */
+    @FunctionalInterface
+    public interface RecordReader {
+        void read(DataInputStream in) throws IOException;
+    }
+
+    private volatile Path file;     // Current segment; only the writer thread changes it
+    private FileChannel channel;     // Only used by the writer thread (and open/close)
+    private volatile long fileSize;  // Bytes written to the current segment so far
+    private final int replayedRecords;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workQueued = lock.newCondition();  // Signalled for the writer thread
+    private final Condition batchDurable = lock.newCondition(); // Signalled for threads in awaitDurable
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(); // guarded by lock
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();   // guarded by lock; swapped with pending
+    private long appendedSeq; // guarded by lock
+    private long durableSeq;  // guarded by lock
+    private boolean closed;   // guarded by lock
+    private IOException failure; // guarded by lock; set once the writer thread fails
+    private Path rollTo;         // guarded by lock; next segment requested by rollOver(), or null
+    private int rollBoundary;    // guarded by lock; bytes of pending that still belong to the old segment
+    private long rollsDone;      // guarded by lock
+
+    // Highest sequence number each thread has appended, so awaitDurable() waits only for the caller's own records
+    private final ThreadLocal<long[]> lastAppendedByThread = ThreadLocal.withInitial(() -> new long[1]);
+
+    private EventLog(Path file, FileChannel channel, int replayedRecords) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.replayedRecords = replayedRecords;
+        this.writer = new Thread(this::writeLoop, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens (or creates) a log file, replays its intact records and gets it ready for appending.
+     *
+     * @param file   The log file. Parent directories are created if needed.
+     * @param reader Receives each intact record's payload, oldest first.
+     * @return The open log.
+     * @throws IOException if the file cannot be read or written, is not an event log, or the reader fails.
+     */
+    public static EventLog open(Path file, RecordReader reader) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            int replayed = 0;
+            if (channel.size() < HEADER_BYTES) {
+                writeHeader(channel);
+            } else {
+                ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not an event log (or unsupported version): " + file);
+                }
+                replayed = replay(channel, file, reader, true);
+            }
+            channel.position(channel.size());
+            return new EventLog(file, channel, replayed);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a closed log file (e.g. an older segment or a snapshot) without opening it for appending.
+     *
+     * @param file   The file to read.
+     * @param reader Receives each record's payload, oldest first.
+     * @return The number of records read.
+     * @throws IOException if the file cannot be read, is not an event log, is damaged, or the reader fails.
+     */
+    public static int read(Path file, RecordReader reader) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not an event log (too short): " + file);
+            }
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an event log (or unsupported version): " + file);
+            }
+            return replay(channel, file, reader, false);
+        }
+    }
+
+    // Creates (or empties) a segment file and positions it for appending after the header
+    private static FileChannel createSegment(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeHeader(channel);
+            channel.position(HEADER_BYTES);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        channel.truncate(0);
+        channel.write(header, 0);
+        channel.force(true);
+    }
+
+    // Reads records until the end of the file or the first damaged one. A damaged tail is either cut off
+    // after the last good record (repair) or reported as an error (closed files, which were fully synced).
+    private static int replay(FileChannel channel, Path file, RecordReader reader, boolean repair) throws IOException {
+        long size = channel.size();
+        long offset = HEADER_BYTES;
+        int count = 0;
+        CRC32 crc = new CRC32();
+        while (offset + FRAME_BYTES <= size) {
+            ByteBuffer frame = readFully(channel, offset, FRAME_BYTES);
+            int length = frame.getInt();
+            int expectedCrc = frame.getInt();
+            if (length < 0 || length > MAX_RECORD_BYTES || offset + FRAME_BYTES + length > size) {
+                break; // Torn write at the tail
+            }
+            byte[] payload = readFully(channel, offset + FRAME_BYTES, length).array();
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                break; // Corrupt record; nothing after it can be trusted
+            }
+            reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+            offset += FRAME_BYTES + length;
+            count++;
+        }
+        if (offset < size && !repair) {
+            throw new IOException("Damaged event log record at byte " + offset + " of " + file);
+        }
+        if (offset < size) {
+            System.err.println("EventLog: Discarding " + (size - offset) + " damaged byte(s) at the end of " + file);
+            channel.truncate(offset);
+            channel.force(true);
+        }
+        return count;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of event log");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Queues a record for writing. Returns as soon as the record is queued; see {@link #awaitDurable()}.
+     *
+     * @param record Writes the record's payload.
+     * @return The record's sequence number.
+     * @throws IllegalStateException if the log is closed or the writer has failed.
+     */
+    public long append(RecordWriter record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            record.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode event log record", e); // Only happens on encoder bugs
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        long seq;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Event log is closed: " + file);
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Event log writer failed earlier: " + failure.getMessage(), failure);
+            }
+            writeInt(pending, payload.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(payload, 0, payload.length);
+            seq = ++appendedSeq;
+            workQueued.signal(); // Wake the writer (only it waits on this condition)
+        } finally {
+            lock.unlock();
+        }
+        lastAppendedByThread.get()[0] = seq;
+        return seq;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Blocks until every record the calling thread has appended is on disk.
+     * Returns immediately if there is nothing outstanding.
+     *
+     * @throws UncheckedIOException if the writer failed before the records were made durable.
+     */
+    public void awaitDurable() {
+        awaitDurable(lastAppendedByThread.get()[0]);
+    }
+
+    /**
+     * Blocks until the record with the given sequence number (and all before it) is on disk.
+     * An interrupt does not end the wait early; the thread's interrupt flag is still set on return.
+     *
+     * @param seq A sequence number returned by {@link #append(RecordWriter)}.
+     * @throws UncheckedIOException if the writer failed before the record was made durable.
+     */
+    public void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            while (durableSeq < seq && failure == null) {
+                batchDurable.awaitUninterruptibly(); // Never report an unwritten record as durable; keeps the interrupt flag
+            }
+            if (durableSeq < seq) {
+                throw new UncheckedIOException("Event log write failed: " + file, failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Switches appending to a new segment file. Records appended before this call stay in the current
+     * segment; records appended afterwards go to the new one. Appenders are never blocked by the switch;
+     * only the caller waits until the old segment is complete on disk and the new one is in use.
+     *
+     * @param nextFile The new segment file. Created (or emptied) with a fresh header.
+     * @throws IllegalStateException if the log is closed or another roll-over is in progress.
+     * @throws UncheckedIOException if the writer failed before the switch completed.
+     */
+    public void rollOver(Path nextFile) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Event log is closed: " + file);
+            }
+            if (rollTo != null) {
+                throw new IllegalStateException("Event log roll-over already in progress: " + file);
+            }
+            rollTo = nextFile;
+            rollBoundary = pending.size();
+            long target = rollsDone + 1;
+            workQueued.signal();
+            while (rollsDone < target && failure == null) {
+                batchDurable.awaitUninterruptibly();
+            }
+            if (rollsDone < target) {
+                throw new UncheckedIOException("Event log roll-over failed: " + nextFile, failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Size in bytes of the current segment, as written so far (excluding queued records). */
+    public long getSize() {
+        return fileSize;
+    }
+
+    /** Number of records found and replayed when the log was opened. */
+    public int getReplayedRecordCount() {
+        return replayedRecords;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Background writer: drain everything queued so far, write it, fsync once, repeat
+    private void writeLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchSeq;
+            Path nextFile;
+            int boundary;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && rollTo == null && !closed) {
+                    workQueued.awaitUninterruptibly(); // Only close() stops the writer
+                }
+                if (pending.size() == 0 && rollTo == null) {
+                    return; // Closed and fully drained
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSeq = appendedSeq;
+                nextFile = rollTo;
+                boundary = (nextFile != null) ? rollBoundary : batch.size();
+                rollTo = null;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                byte[] bytes = batch.toByteArray();
+                writeAndSync(bytes, 0, boundary);
+                if (nextFile != null) {
+                    FileChannel next = createSegment(nextFile);
+                    channel.close();
+                    channel = next;
+                    file = nextFile;
+                    fileSize = HEADER_BYTES;
+                    writeAndSync(bytes, boundary, bytes.length - boundary);
+                }
+            } catch (IOException e) {
+                System.err.println("EventLog: Write to " + file + " failed: " + e.getMessage());
+                lock.lock();
+                try {
+                    failure = e;
+                    batchDurable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                batch.reset();
+                durableSeq = batchSeq;
+                if (nextFile != null) {
+                    rollsDone++;
+                }
+                batchDurable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void writeAndSync(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        fileSize += length;
+    }
+
+    /**
+     * Writes and fsyncs everything still queued, then closes the file. Further appends fail.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            workQueued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
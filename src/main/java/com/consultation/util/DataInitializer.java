@@ -20,7 +20,7 @@ public class DataInitializer {
             "Prof. Janice Capule", "jcapule@tip.edu.ph", "Operating Systems"); // Subject passed
         if (profCapule != null) {
             // Add any additional subjects AFTER registration
-            profCapule.addSubject("Data Structures and Algorithms");
+            controller.addSubject(profCapule, "Data Structures and Algorithms");
         }
 
         User profBarcelos = controller.registerUser("prof.barcelos", "pass123", "PROFESSOR", "Prof. Elsa Barcelos",
@@ -59,14 +59,14 @@ public class DataInitializer {
             "jcruz@tip.edu.ph", null); // Pass null for subject
         if (student1 != null) {
             // Add student enrollments AFTER registration
-            student1.addSubject("Operating Systems");
-            student1.addSubject("Data Structures and Algorithms");
-            student1.addSubject("General Education Elective");
-            student1.addSubject("Information Management");
-            student1.addSubject("Discrete Mathematics");
-            student1.addSubject("Introduction to Numerical Analysis");
-            student1.addSubject("Physical Education 4");
-            student1.addSubject("Web Development");
+            controller.addSubject(student1, "Operating Systems");
+            controller.addSubject(student1, "Data Structures and Algorithms");
+            controller.addSubject(student1, "General Education Elective");
+            controller.addSubject(student1, "Information Management");
+            controller.addSubject(student1, "Discrete Mathematics");
+            controller.addSubject(student1, "Introduction to Numerical Analysis");
+            controller.addSubject(student1, "Physical Education 4");
+            controller.addSubject(student1, "Web Development");
         }
 
         // Pass null for the subject argument for non-professors
@@ -74,30 +74,29 @@ public class DataInitializer {
             "clopez@tip.edu.ph", null); // Pass null for subject
         if (student2 != null) {
             // Add student enrollments AFTER registration
-            student2.addSubject("Operating Systems");
-            student2.addSubject("Data Structures and Algorithms");
-            student2.addSubject("General Education Elective");
-            student2.addSubject("Information Management");
-            student2.addSubject("Discrete Mathematics");
-            student2.addSubject("Introduction to Numerical Analysis");
-            student2.addSubject("Physical Education 4");
-            student2.addSubject("Web Development");
+            controller.addSubject(student2, "Operating Systems");
+            controller.addSubject(student2, "Data Structures and Algorithms");
+            controller.addSubject(student2, "General Education Elective");
+            controller.addSubject(student2, "Information Management");
+            controller.addSubject(student2, "Discrete Mathematics");
+            controller.addSubject(student2, "Introduction to Numerical Analysis");
+            controller.addSubject(student2, "Physical Education 4");
+            controller.addSubject(student2, "Web Development");
         }
-<<<<<<< HEAD
         
      // Pass null for the subject argument for non-professors
         User student3 = controller.registerUser("student3", "pass123", "STUDENT", "Kenneth Beliganio",
             "clopez@tip.edu.ph", null); // Pass null for subject
         if (student2 != null) {
             // Add student enrollments AFTER registration
-            student2.addSubject("Operating Systems");
-            student2.addSubject("Data Structures and Algorithms");
-            student2.addSubject("General Education Elective");
-            student2.addSubject("Information Management");
-            student2.addSubject("Discrete Mathematics");
-            student2.addSubject("Introduction to Numerical Analysis");
-            student2.addSubject("Physical Education 4");
-            student2.addSubject("Web Development");
+            controller.addSubject(student2, "Operating Systems");
+            controller.addSubject(student2, "Data Structures and Algorithms");
+            controller.addSubject(student2, "General Education Elective");
+            controller.addSubject(student2, "Information Management");
+            controller.addSubject(student2, "Discrete Mathematics");
+            controller.addSubject(student2, "Introduction to Numerical Analysis");
+            controller.addSubject(student2, "Physical Education 4");
+            controller.addSubject(student2, "Web Development");
         }
         
      // Pass null for the subject argument for non-professors
@@ -105,14 +104,14 @@ public class DataInitializer {
             "clopez@tip.edu.ph", null); // Pass null for subject
         if (student2 != null) {
             // Add student enrollments AFTER registration
-            student2.addSubject("Operating Systems");
-            student2.addSubject("Data Structures and Algorithms");
-            student2.addSubject("General Education Elective");
-            student2.addSubject("Information Management");
-            student2.addSubject("Discrete Mathematics");
-            student2.addSubject("Introduction to Numerical Analysis");
-            student2.addSubject("Physical Education 4");
-            student2.addSubject("Web Development");
+            controller.addSubject(student2, "Operating Systems");
+            controller.addSubject(student2, "Data Structures and Algorithms");
+            controller.addSubject(student2, "General Education Elective");
+            controller.addSubject(student2, "Information Management");
+            controller.addSubject(student2, "Discrete Mathematics");
+            controller.addSubject(student2, "Introduction to Numerical Analysis");
+            controller.addSubject(student2, "Physical Education 4");
+            controller.addSubject(student2, "Web Development");
         }
         
      // Pass null for the subject argument for non-professors
@@ -120,17 +119,15 @@ public class DataInitializer {
             "clopez@tip.edu.ph", null); // Pass null for subject
         if (student2 != null) {
             // Add student enrollments AFTER registration
-            student2.addSubject("Operating Systems");
-            student2.addSubject("Data Structures and Algorithms");
-            student2.addSubject("General Education Elective");
-            student2.addSubject("Information Management");
-            student2.addSubject("Discrete Mathematics");
-            student2.addSubject("Introduction to Numerical Analysis");
-            student2.addSubject("Physical Education 4");
-            student2.addSubject("Web Development");
+            controller.addSubject(student2, "Operating Systems");
+            controller.addSubject(student2, "Data Structures and Algorithms");
+            controller.addSubject(student2, "General Education Elective");
+            controller.addSubject(student2, "Information Management");
+            controller.addSubject(student2, "Discrete Mathematics");
+            controller.addSubject(student2, "Introduction to Numerical Analysis");
+            controller.addSubject(student2, "Physical Education 4");
+            controller.addSubject(student2, "Web Development");
         }
-=======
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
 
         // --- Initialize DEFAULT Time Slots for ALL Staff ---
         // This part is removed because registerUser now calls initializeDefaultSlotsForUser
@@ -147,17 +144,16 @@ public class DataInitializer {
         LocalDate tomorrow = today.plusDays(1);
         LocalDate dayAfterTomorrow = today.plusDays(2);
 
-<<<<<<< HEAD
         if (profCapule != null) {
-            markSlotUnavailable(controller, profCapule.getUsername(), tomorrow, LocalTime.of(9, 0));
-            markSlotUnavailable(controller, profCapule.getUsername(), tomorrow, LocalTime.of(10, 0));
+            markSlotUnavailable(controller, profCapule, tomorrow, LocalTime.of(9, 0));
+            markSlotUnavailable(controller, profCapule, tomorrow, LocalTime.of(10, 0));
         }
         if (counselorGarcia != null) {
             List<TimeSlot> slotsToMakeUnavailable = controller.getTimeSlotsForDate(counselorGarcia.getUsername(), dayAfterTomorrow);
             if (slotsToMakeUnavailable != null && !slotsToMakeUnavailable.isEmpty()) {
                  System.out.println("  Making Counselor Garcia unavailable on " + dayAfterTomorrow + "...");
                 for (TimeSlot slot : slotsToMakeUnavailable) {
-                    slot.setMarkedAvailable(false);
+                    controller.setTimeSlotAvailability(counselorGarcia, dayAfterTomorrow, slot, false);
                      System.out.println("    Marked slot " + slot.getStartTime() + "-" + slot.getEndTime() + " as unavailable.");
                 }
             } else {
@@ -165,30 +161,8 @@ public class DataInitializer {
              }
         }
         if (profLim != null) {
-             markSlotUnavailable(controller, profLim.getUsername(), today, LocalTime.of(13, 0));
+             markSlotUnavailable(controller, profLim, today, LocalTime.of(13, 0));
         }
-=======
-        // Remove the code that marks slots as unavailable
-        // if (profCapule != null) {
-        //     markSlotUnavailable(controller, profCapule.getUsername(), tomorrow, LocalTime.of(9, 0));
-        //     markSlotUnavailable(controller, profCapule.getUsername(), tomorrow, LocalTime.of(10, 0));
-        // }
-        // if (counselorGarcia != null) {
-        //     List<TimeSlot> slotsToMakeUnavailable = controller.getTimeSlotsForDate(counselorGarcia.getUsername(), dayAfterTomorrow);
-        //     if (slotsToMakeUnavailable != null && !slotsToMakeUnavailable.isEmpty()) {
-        //          System.out.println("  Making Counselor Garcia unavailable on " + dayAfterTomorrow + "...");
-        //         for (TimeSlot slot : slotsToMakeUnavailable) {
-        //             slot.setMarkedAvailable(false);
-        //              System.out.println("    Marked slot " + slot.getStartTime() + "-" + slot.getEndTime() + " as unavailable.");
-        //         }
-        //     } else {
-        //          System.out.println("  No default slots found for Counselor Garcia on " + dayAfterTomorrow + " to mark unavailable.");
-        //      }
-        // }
-        // if (profLim != null) {
-        //      markSlotUnavailable(controller, profLim.getUsername(), today, LocalTime.of(13, 0));
-        // }
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
         LocalTime lateAfternoon = LocalTime.of(17, 0);
         LocalTime evening = LocalTime.of(18, 0);
         if (profLim != null) {
@@ -197,7 +171,6 @@ public class DataInitializer {
         System.out.println("Staff availability customization complete.");
         // --- END: Customize Staff Availability ---
 
-<<<<<<< HEAD
 
         // --- Create Sample Appointments ---
         System.out.println("\nCreating sample appointments...");
@@ -212,9 +185,6 @@ public class DataInitializer {
         if (student2 != null && profLim != null) controller.createAppointment(student2, profLim, "Web Development", 30);
         if (student1 != null && counselorGarcia != null) controller.createAppointment(student1, counselorGarcia, "Academic Advising", 45);
 
-=======
-        // Remove sample appointments section
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
         System.out.println("\nInitialization complete.");
         if (student1 != null) {
             System.out.println("Total appointments for student1: " + controller.getUserAppointments(student1).size());
@@ -227,7 +197,7 @@ public class DataInitializer {
         }
          if (counselorGarcia != null) {
               List<TimeSlot> garciaDATTomorrowSlots = controller.getTimeSlotsForDate(counselorGarcia.getUsername(), dayAfterTomorrow);
-              long garciaUnavailableCount = garciaDATTomorrowSlots.stream().filter(ts -> !ts.isMarkedAvailable).count(); // Check marked unavailable
+              long garciaUnavailableCount = garciaDATTomorrowSlots.stream().filter(ts -> !ts.isMarkedAvailable()).count(); // Check marked unavailable
               System.out.println("Counselor Garcia Availability Check for " + dayAfterTomorrow + ": Found " + garciaDATTomorrowSlots.size() + " total slots, " + garciaUnavailableCount + " are marked unavailable.");
           }
     }
@@ -235,8 +205,8 @@ public class DataInitializer {
     /**
      * Helper method to find a specific TimeSlot and mark it as unavailable.
      */
-    private static void markSlotUnavailable(ConsultationController controller, String username, LocalDate date, LocalTime startTime) {
-<<<<<<< HEAD
+    private static void markSlotUnavailable(ConsultationController controller, User staffUser, LocalDate date, LocalTime startTime) {
+        String username = staffUser.getUsername();
         List<TimeSlot> slots = controller.getTimeSlotsForDate(username, date);
         Optional<TimeSlot> slotToMark = slots.stream()
                 .filter(slot -> slot.getStartTime().equals(startTime))
@@ -247,15 +217,10 @@ public class DataInitializer {
             if (slot.isBooked()) {
                 System.out.println("  INFO: Marking slot " + date + " " + startTime + " for " + username + " as unavailable, but it is already booked by " + (slot.getAppointment() != null ? slot.getAppointment().getStudent().getUsername() : "Unknown") + ".");
             }
-            slot.setMarkedAvailable(false); // Mark the slot as not available for booking in general
+            controller.setTimeSlotAvailability(staffUser, date, slot, false); // Mark the slot as not available for booking in general
             System.out.println("  Marked slot " + date + " " + startTime + " for " + username + " as unavailable.");
         } else {
             System.out.println("  WARN: Could not find slot starting at " + startTime + " on " + date + " for user " + username + " to mark unavailable.");
         }
-=======
-        // Don't mark any slots as unavailable
-        System.out.println("  INFO: Skipping marking slot as unavailable to ensure all slots are available.");
-        return;
->>>>>>> 97d91e1730b3f848456d6926936e586d2409b832
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package com.consultation.view;
+
+import java.awt.EventQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long the Swing event dispatch thread (EDT) is blocked.
+ * <p>
+ * A background thread posts an empty task to the EDT every {@link #PERIOD_MS} ms and times how long it
+ * waits before it runs. A wait of at least the threshold means the EDT was busy (a long listener, a
+ * query on the EDT, ...) and the UI was frozen for that long; it is reported on stderr together with
+ * what the EDT was doing once the stall passed the threshold, so the culprit can be found. Only one
+ * probe is outstanding at a time, so a long stall is reported once.
+ * <p>
+ * Costs one short task on the EDT per period. Thread-safe.
+ */
+final class EdtLatencyProbe {
+
+    static final long PERIOD_MS = 50;
+    private static final int STACK_DEPTH = 8; // Frames of the EDT's stack shown for a stall
+
+    private final long thresholdNanos;
+    private final ScheduledExecutorService timer;
+
+    private volatile Thread edt;            // Seen by the first probe
+    private volatile long outstandingSince; // nanoTime the pending probe was posted, 0 if none
+    private volatile boolean stackReported; // The pending probe's stall was already traced
+
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong stalledNanos = new AtomicLong(); // Total time of the reported stalls
+
+    private EdtLatencyProbe(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "edt-latency-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts probing.
+     *
+     * @param thresholdMillis Waits at least this long are reported as stalls.
+     */
+    static EdtLatencyProbe start(long thresholdMillis) {
+        EdtLatencyProbe probe = new EdtLatencyProbe(thresholdMillis);
+        probe.timer.scheduleWithFixedDelay(probe::tick, PERIOD_MS, PERIOD_MS, TimeUnit.MILLISECONDS);
+        return probe;
+    }
+
+    /** Stops probing and prints a summary line. */
+    void stop() {
+        timer.shutdownNow();
+        System.out.println("EDT latency: " + this);
+    }
+
+    /** Longest time a probe waited for the EDT so far, in milliseconds. */
+    long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    /** Number of stalls at or above the threshold so far. */
+    long getStallCount() {
+        return stalls.get();
+    }
+
+    @Override
+    public String toString() {
+        return probes.get() + " probes, max " + getMaxLatencyMillis() + " ms, " + stalls.get() + " stall(s) >= "
+                + TimeUnit.NANOSECONDS.toMillis(thresholdNanos) + " ms totalling " + TimeUnit.NANOSECONDS.toMillis(stalledNanos.get()) + " ms";
+    }
+
+    private void tick() {
+        long since = outstandingSince;
+        if (since != 0) { // The last probe has not run yet: the EDT is busy
+            if (!stackReported && System.nanoTime() - since >= thresholdNanos) {
+                stackReported = true;
+                reportStack();
+            }
+            return;
+        }
+        stackReported = false;
+        long posted = System.nanoTime();
+        outstandingSince = posted;
+        EventQueue.invokeLater(() -> probeRan(posted));
+    }
+
+    private void probeRan(long posted) {
+        long latency = System.nanoTime() - posted;
+        edt = Thread.currentThread();
+        outstandingSince = 0;
+        probes.incrementAndGet();
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        if (latency >= thresholdNanos) {
+            stalls.incrementAndGet();
+            stalledNanos.addAndGet(latency);
+            System.err.println("EDT blocked for " + TimeUnit.NANOSECONDS.toMillis(latency) + " ms");
+        }
+    }
+
+    // Runs on the probe thread while the EDT is still stalled
+    private void reportStack() {
+        Thread thread = edt;
+        if (thread == null) {
+            return;
+        }
+        StringBuilder trace = new StringBuilder("EDT busy for over ").append(TimeUnit.NANOSECONDS.toMillis(thresholdNanos)).append(" ms in:");
+        StackTraceElement[] stack = thread.getStackTrace();
+        for (int i = 0; i < Math.min(STACK_DEPTH, stack.length); i++) {
+            trace.append(System.lineSeparator()).append("    at ").append(stack[i]);
+        }
+        System.err.println(trace);
+    }
+}
@@ -0,0 +1,150 @@
+package com.consultation.view;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A read-only table model whose rows are identified by a key (e.g. an appointment ID or a username).
+ * <p>
+ * {@link #setRows(List, List)} replaces the contents with a new list of rows and tells the table only
+ * what changed: rows whose key disappeared are deleted, new keys are inserted, rows whose values
+ * changed are updated, and unchanged rows fire nothing. A single status change therefore repaints one
+ * row, and the table keeps its selection and scroll position. Must be used on the EDT, like any Swing model;
+ * the rows themselves can be built on a background thread as a {@link Rows} snapshot.
+ *
+ * @param <K> The row key type; keys must be unique within one call to setRows.
+ */
+class KeyedTableModel<K> extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String[] columnNames;
+    private final List<K> keys = new ArrayList<>();
+    private final List<Object[]> rows = new ArrayList<>();
+
+    KeyedTableModel(String... columnNames) {
+        this.columnNames = columnNames.clone();
+    }
+
+    /**
+     * Replaces the rows, firing insert, update and delete events for the differences only.
+     *
+     * @param newKeys The row keys, in display order.
+     * @param newRows The row values, one array of column values per key.
+     */
+    void setRows(List<K> newKeys, List<Object[]> newRows) {
+        if (newKeys.size() != newRows.size()) {
+            throw new IllegalArgumentException("Got " + newKeys.size() + " keys for " + newRows.size() + " rows");
+        }
+        // 1. Delete the rows whose key is gone (bottom up, so the indexes stay valid)
+        Set<K> wanted = new HashSet<>(newKeys);
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            if (!wanted.contains(keys.get(i))) {
+                keys.remove(i);
+                rows.remove(i);
+                fireTableRowsDeleted(i, i);
+            }
+        }
+        // 2. Walk the new order: keep, update, insert, or move each row into place
+        Set<K> present = new HashSet<>(keys);
+        for (int i = 0; i < newKeys.size(); i++) {
+            K key = newKeys.get(i);
+            Object[] row = newRows.get(i);
+            if (i < keys.size() && keys.get(i).equals(key)) {
+                if (!Arrays.equals(rows.get(i), row)) {
+                    rows.set(i, row);
+                    fireTableRowsUpdated(i, i);
+                }
+                continue;
+            }
+            if (present.contains(key)) { // Further down: it moved up (e.g. a priority change)
+                int from = keys.indexOf(key);
+                keys.remove(from);
+                rows.remove(from);
+                fireTableRowsDeleted(from, from);
+            } else {
+                present.add(key);
+            }
+            keys.add(i, key);
+            rows.add(i, row);
+            fireTableRowsInserted(i, i);
+        }
+    }
+
+    /** Replaces the rows with a snapshot (see {@link #setRows(List, List)}). */
+    void setRows(Rows<K> snapshot) {
+        setRows(snapshot.keys, snapshot.values);
+    }
+
+    /** Removes every row. */
+    void clear() {
+        if (keys.isEmpty()) {
+            return;
+        }
+        int last = keys.size() - 1;
+        keys.clear();
+        rows.clear();
+        fireTableRowsDeleted(0, last);
+    }
+
+    /**
+     * Gets the key of a row.
+     *
+     * @param rowIndex The row in model coordinates (see {@code JTable.convertRowIndexToModel}).
+     * @return The key, or null if the index is out of range.
+     */
+    K getKeyAt(int rowIndex) {
+        return rowIndex >= 0 && rowIndex < keys.size() ? keys.get(rowIndex) : null;
+    }
+
+    /**
+     * An immutable list of keyed rows, built off the EDT (e.g. in a SwingWorker) and then handed to
+     * {@link #setRows(Rows)} on it.
+     */
+    static final class Rows<K> {
+        private final List<K> keys;
+        private final List<Object[]> values;
+
+        /** Copies the lists; the row arrays must not be changed afterwards. */
+        Rows(List<K> keys, List<Object[]> values) {
+            if (keys.size() != values.size()) {
+                throw new IllegalArgumentException("Got " + keys.size() + " keys for " + values.size() + " rows");
+            }
+            this.keys = List.copyOf(keys);
+            this.values = List.copyOf(values);
+        }
+
+        List<K> getKeys() {
+            return keys;
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return rows.get(rowIndex)[columnIndex];
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+}
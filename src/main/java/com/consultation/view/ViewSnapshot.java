@@ -0,0 +1,114 @@
+package com.consultation.view;
+
+import com.consultation.controller.ConsultationController;
+import com.consultation.model.Appointment;
+import com.consultation.model.Notification;
+import com.consultation.model.QueuePosition;
+import com.consultation.model.TimeSlot;
+import com.consultation.model.User;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The controller data read for one refresh tick of the GUI, shared by every view refreshed in it.
+ * <p>
+ * Each query runs at most once per snapshot and its result is kept, so views that need the same data
+ * (e.g. the queue table, the queue info boxes and Manage Appointments all need the staff member's
+ * appointments) query the controller once between them. Lists are copied, so the views work on a
+ * fixed list even if the controller changes meanwhile; the model objects in them are live.
+ * <p>
+ * Built and used by one background thread (see ConsultationGUI.runRefreshTick); not thread-safe.
+ */
+final class ViewSnapshot {
+
+    private final ConsultationController controller;
+    private final User user;
+
+    private List<User> allUsers;
+    private List<Notification> notifications;
+    private Map<String, Object> staffAnalytics;
+    private final Map<String, List<Appointment>> appointmentsByUser = new HashMap<>();
+    private final Map<String, List<Appointment>> queuedByStaff = new HashMap<>();
+    private final Map<String, Integer> queueSizes = new HashMap<>();
+    private final Map<String, Integer> waitTimes = new HashMap<>();
+    private final Map<String, List<TimeSlot>> slots = new HashMap<>();          // "username@date" -> all slots
+    private final Map<String, List<TimeSlot>> availableSlots = new HashMap<>(); // "username@date" -> available slots
+
+    /**
+     * @param controller The controller to read.
+     * @param user       The logged-in user the views are for.
+     */
+    ViewSnapshot(ConsultationController controller, User user) {
+        this.controller = controller;
+        this.user = user;
+    }
+
+    User getUser() {
+        return user;
+    }
+
+    List<User> getAllUsers() {
+        if (allUsers == null) {
+            allUsers = List.copyOf(controller.getAllUsers());
+        }
+        return allUsers;
+    }
+
+    /** The logged-in user's appointments. */
+    List<Appointment> getUserAppointments() {
+        return getUserAppointments(user);
+    }
+
+    List<Appointment> getUserAppointments(User other) {
+        return appointmentsByUser.computeIfAbsent(other.getUsername(), k -> List.copyOf(controller.getUserAppointments(other)));
+    }
+
+    List<Appointment> getQueuedAppointments(String staffUsername) {
+        return queuedByStaff.computeIfAbsent(staffUsername, k -> List.copyOf(controller.getQueuedAppointments(k)));
+    }
+
+    int getQueueSize(String staffUsername) {
+        return queueSizes.computeIfAbsent(staffUsername, controller::getQueueSize);
+    }
+
+    int getEstimatedWaitTime(String staffUsername) {
+        return waitTimes.computeIfAbsent(staffUsername, controller::getEstimatedWaitTime);
+    }
+
+    /** Not cached: depends on the appointment, and each one is asked for once. */
+    QueuePosition getQueuePosition(Appointment appointment) {
+        return controller.getQueuePosition(appointment);
+    }
+
+    List<TimeSlot> getTimeSlotsForDate(String staffUsername, LocalDate date) {
+        return slots.computeIfAbsent(staffUsername + "@" + date, k -> copyOf(controller.getTimeSlotsForDate(staffUsername, date)));
+    }
+
+    List<TimeSlot> getAvailableTimeSlots(String staffUsername, LocalDate date) {
+        return availableSlots.computeIfAbsent(staffUsername + "@" + date, k -> copyOf(controller.getAvailableTimeSlots(staffUsername, date)));
+    }
+
+    /** The logged-in staff member's analytics. */
+    Map<String, Object> getStaffAnalytics() {
+        if (staffAnalytics == null) {
+            staffAnalytics = controller.getStaffAnalytics(user);
+        }
+        return staffAnalytics;
+    }
+
+    /** The logged-in user's notifications, newest first, including any still being delivered. */
+    List<Notification> getNotifications() {
+        if (notifications == null) {
+            controller.flushNotifications(); // Include what this user's last action sent
+            notifications = List.copyOf(controller.getUserNotifications(user.getUsername()));
+        }
+        return notifications;
+    }
+
+    private static <T> List<T> copyOf(List<T> list) {
+        return list == null ? List.of() : List.copyOf(list);
+    }
+}
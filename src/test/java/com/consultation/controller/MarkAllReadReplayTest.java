@@ -0,0 +1,69 @@
+package com.consultation.controller;
+
+import com.consultation.model.Notification;
+import com.consultation.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * "Mark all as read" racing a notification delivery: the delivery is journaled first, but reaches the
+ * inbox only after mark-all ran, so it is still unread. Replaying the journal must agree.
+ */
+class MarkAllReadReplayTest {
+
+    @Test
+    void replayDoesNotMarkAConcurrentDeliveryRead() throws Exception {
+        Path dir = Files.createTempDirectory("mark-all-replay");
+        AtomicBoolean armed = new AtomicBoolean();
+        AtomicReference<ConsultationController> live = new AtomicReference<>();
+        JournalStore journal = new JournalStore(dir);
+        // Runs mark-all between journaling a delivery and adding it to the inbox (both on the delivery thread)
+        ConsultationStore store = (ConsultationStore) Proxy.newProxyInstance(ConsultationStore.class.getClassLoader(),
+                new Class<?>[] {ConsultationStore.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(journal, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().equals("notificationSent") && armed.compareAndSet(true, false)) {
+                        live.get().markAllNotificationsAsRead((String) args[0]);
+                    }
+                    return result;
+                });
+
+        ConsultationController controller = new ConsultationController(store);
+        live.set(controller);
+        User staff = controller.registerUser("replay.counselor", "pw", "COUNSELOR", "Counselor", "c@example.com", null);
+        LocalDate date = LocalDate.now().plusDays(10);
+        assertTrue(controller.addTimeSlot(staff, date, LocalTime.of(7, 0), LocalTime.of(7, 30))); // Sends notification 1
+        controller.flushNotifications();
+        armed.set(true);
+        assertTrue(controller.addTimeSlot(staff, date, LocalTime.of(7, 30), LocalTime.of(8, 0))); // Sends notification 2
+        controller.flushNotifications();
+
+        List<Long> liveUnread = ids(controller.getUserNotifications(staff.getUsername()));
+        assertEquals(1, liveUnread.size()); // Notification 2 arrived after mark-all
+        controller.close();
+
+        ConsultationController restored = new ConsultationController(dir);
+        assertEquals(liveUnread, ids(restored.getUserNotifications(staff.getUsername())));
+        restored.close();
+    }
+
+    private static List<Long> ids(List<Notification> notifications) {
+        return notifications.stream().map(Notification::getId).toList();
+    }
+}
@@ -0,0 +1,89 @@
+package com.consultation.controller;
+
+import com.consultation.model.Appointment;
+import com.consultation.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a priority swap, which moves every appointment in the shift group to another time,
+ * never hides an appointment from the lock-free per-user index readers.
+ */
+class PrioritySwapConcurrencyTest {
+
+    private static final int STUDENTS = 5;
+    private static final int SWAPS = 2_000;
+    private static final int READERS = 3;
+
+    @Test
+    void readersAlwaysSeeEveryStudentsAppointmentDuringSwaps() throws Exception {
+        ConsultationController controller = new ConsultationController();
+        User counselor = controller.registerUser("swap.counselor", "pw", "COUNSELOR", "Swap Counselor", "c@example.com", null);
+        List<User> students = new ArrayList<>();
+        List<Appointment> booked = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            User student = controller.registerUser("swap.student" + i, "pw", "STUDENT", "Student " + i, "s" + i + "@example.com", null);
+            students.add(student);
+            Appointment appointment = controller.createAppointment(student, counselor, "Academic Advising", 30);
+            assertNotNull(appointment, "booking " + i);
+            booked.add(appointment);
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(READERS);
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            Thread reader = new Thread(() -> {
+                started.countDown();
+                while (!done.get() && failure.get() == null) {
+                    for (User student : students) {
+                        int seen = controller.getUserAppointments(student).size();
+                        if (seen != 1) {
+                            failure.compareAndSet(null, student.getUsername() + " had " + seen + " appointments");
+                        }
+                    }
+                    if (controller.getUserAppointments(counselor).size() != STUDENTS) {
+                        failure.compareAndSet(null, "counselor index lost an appointment");
+                    }
+                }
+            }, "index-reader-" + r);
+            readers.add(reader);
+            reader.start();
+        }
+        started.await();
+
+        // Alternately prioritise the latest pending appointment (a full swap and shift) and clear it again
+        for (int i = 0; i < SWAPS && failure.get() == null; i++) {
+            List<Appointment> queue = controller.getUserAppointments(counselor);
+            Appointment latest = queue.get(queue.size() - 1);
+            assertTrue(controller.setPriority(latest, true), "swap " + i);
+            assertTrue(controller.setPriority(latest, false), "clear " + i);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        List<Appointment> finalOrder = controller.getUserAppointments(counselor);
+        assertEquals(STUDENTS, finalOrder.size());
+        for (int i = 1; i < finalOrder.size(); i++) {
+            assertTrue(finalOrder.get(i - 1).getAppointmentTime().isBefore(finalOrder.get(i).getAppointmentTime()), "index out of time order");
+        }
+        for (Appointment appointment : booked) {
+            assertEquals(appointment, controller.getUserAppointments(appointment.getStudent()).get(0));
+        }
+        controller.close();
+    }
+}
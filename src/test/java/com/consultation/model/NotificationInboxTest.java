@@ -0,0 +1,60 @@
+package com.consultation.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationInboxTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Test
+    void retentionAfterMarkAllReadLeavesNoRemovedEntryReachable() {
+        NotificationInbox inbox = new NotificationInbox();
+        for (int i = 0; i < 10; i++) {
+            inbox.add(notification(i));
+        }
+        assertEquals(10L, inbox.markAllRead()); // Newest ID it covered
+        for (int i = 10; i < 13; i++) {
+            inbox.add(notification(i));
+        }
+        assertEquals(13, inbox.reachableEntryCount());
+
+        // Keep the newest 8: drops five of the entries "mark all" left linked together
+        List<Notification> expired = inbox.getExpired(8, null, null);
+        assertEquals(5, expired.size());
+        for (Notification notification : expired) {
+            assertTrue(inbox.remove(notification.getId()));
+        }
+
+        assertEquals(8, inbox.size());
+        assertEquals(8, inbox.reachableEntryCount());
+        assertEquals(3, inbox.getUnreadCount());
+        assertEquals(List.of(13L, 12L, 11L), inbox.getUnread(10).stream().map(Notification::getId).toList());
+    }
+
+    @Test
+    void removingUnreadEntriesKeepsTheUnreadListIntact() {
+        NotificationInbox inbox = new NotificationInbox();
+        for (int i = 0; i < 5; i++) {
+            inbox.add(notification(i));
+        }
+        assertTrue(inbox.remove(5)); // Newest
+        assertTrue(inbox.remove(3)); // Middle
+        assertTrue(inbox.markRead(1));
+        assertTrue(inbox.remove(1)); // Already read
+
+        assertEquals(2, inbox.getUnreadCount());
+        assertEquals(List.of(4L, 2L), inbox.getUnread(10).stream().map(Notification::getId).toList());
+        assertEquals(2, inbox.reachableEntryCount());
+    }
+
+    // IDs start at 1, like real ones
+    private static Notification notification(int i) {
+        return new Notification(i + 1, START.plusMinutes(i), "Message " + i, false);
+    }
+}
@@ -0,0 +1,89 @@
+package com.consultation.view;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class KeyedTableModelTest {
+
+    @Test
+    void firesOnlyTheDifferences() {
+        KeyedTableModel<Integer> model = new KeyedTableModel<>("ID", "Status");
+        List<String> events = record(model);
+
+        model.setRows(List.of(1, 2, 3), rows("1:PENDING", "2:PENDING", "3:PENDING"));
+        assertEquals(List.of("insert 0", "insert 1", "insert 2"), events);
+
+        events.clear();
+        model.setRows(List.of(1, 2, 3), rows("1:PENDING", "2:PENDING", "3:PENDING"));
+        assertEquals(List.of(), events); // Unchanged rows fire nothing
+
+        events.clear();
+        model.setRows(List.of(1, 2, 3), rows("1:PENDING", "2:IN_PROGRESS", "3:PENDING"));
+        assertEquals(List.of("update 1"), events);
+
+        events.clear();
+        model.setRows(List.of(1, 3, 4), rows("1:PENDING", "3:PENDING", "4:PENDING"));
+        assertEquals(List.of("delete 1", "insert 2"), events);
+        assertContents(model, "1:PENDING", "3:PENDING", "4:PENDING");
+    }
+
+    @Test
+    void movesARowThatChangedPlace() {
+        KeyedTableModel<Integer> model = new KeyedTableModel<>("ID", "Status");
+        model.setRows(List.of(1, 2, 3), rows("1:A", "2:A", "3:A"));
+        List<String> events = record(model);
+
+        model.setRows(List.of(3, 1, 2), rows("3:A", "1:A", "2:A")); // e.g. 3 was given priority
+        assertEquals(List.of("delete 2", "insert 0"), events);
+        assertContents(model, "3:A", "1:A", "2:A");
+        assertEquals(3, (int) model.getKeyAt(0));
+        assertNull(model.getKeyAt(3));
+    }
+
+    @Test
+    void clearRemovesEveryRowAtOnce() {
+        KeyedTableModel<Integer> model = new KeyedTableModel<>("ID", "Status");
+        model.setRows(new KeyedTableModel.Rows<>(List.of(1, 2), rows("1:A", "2:A")));
+        List<String> events = record(model);
+
+        model.clear();
+        assertEquals(List.of("delete 0"), events);
+        assertEquals(0, model.getRowCount());
+    }
+
+    // Each row is "id:status"
+    private static List<Object[]> rows(String... values) {
+        List<Object[]> rows = new ArrayList<>();
+        for (String value : values) {
+            String[] parts = value.split(":");
+            rows.add(new Object[] {Integer.parseInt(parts[0]), parts[1]});
+        }
+        return rows;
+    }
+
+    private static void assertContents(KeyedTableModel<Integer> model, String... expected) {
+        assertEquals(expected.length, model.getRowCount());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], model.getValueAt(i, 0) + ":" + model.getValueAt(i, 1));
+        }
+    }
+
+    private static List<String> record(KeyedTableModel<Integer> model) {
+        List<String> events = new ArrayList<>();
+        model.addTableModelListener(e -> {
+            String type = switch (e.getType()) {
+                case TableModelEvent.INSERT -> "insert";
+                case TableModelEvent.DELETE -> "delete";
+                default -> "update";
+            };
+            events.add(type + " " + e.getFirstRow());
+        });
+        return events;
+    }
+}